@@ -0,0 +1,126 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import fr.ifpen.allotropeconverters.gc.chemstation.ChemStationToAllotropeMapper;
+import fr.ifpen.allotropeconverters.gc.chemstation.ConversionListener;
+import fr.ifpen.allotropeconverters.gc.chemstation.Decimation;
+import fr.ifpen.allotropeconverters.gc.chemstation.SamplePrecision;
+import fr.ifpen.allotropeconverters.gc.chemstation.chfile.ChFileFactory;
+import fr.ifpen.allotropeconverters.gc.schema.GasChromatographyTabularEmbedSchema;
+import jakarta.xml.bind.JAXBException;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON writing of an already mapped document, and the whole conversion for comparison.<br>
+ * 0 points stands for the V179.D fixture; other sizes are synthetic runs. Points are written exactly, or rounded to the
+ * resolution of the file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SerializationBenchmark {
+
+    @Param({"0", "1000000"})
+    public int points;
+
+    @Param({"full", "fileScaling"})
+    public String precision;
+
+    private final ConversionRuntime runtime = new ConversionRuntime();
+    private GcToAllotropeJsonConverter converter;
+    private Path folder;
+    private Path temporaryDirectory;
+    private GasChromatographyTabularEmbedSchema embedSchema;
+    private int signalSize;
+
+    @Setup(Level.Trial)
+    public void mapDocument() throws IOException, JAXBException {
+        if (points == 0) {
+            folder = Path.of("src/test/resources/V179.D");
+        } else {
+            temporaryDirectory = Files.createTempDirectory("gc2asm-benchmark");
+            folder = SyntheticRun.defaults()
+                                 .withPoints(points)
+                                 .withPeaks(points / 1000)
+                                 .writeDFolder(temporaryDirectory, "synthetic.D");
+        }
+
+        SamplePrecision samplePrecision = precision.equals("full") ? SamplePrecision.full() : SamplePrecision.fileScaling();
+        converter = new GcToAllotropeJsonConverter(ZoneOffset.UTC, runtime, Decimation.none(), samplePrecision,
+                                                   ConversionListener.none());
+        ChemStationToAllotropeMapper mapper = new ChemStationToAllotropeMapper(ZoneOffset.UTC, runtime.getResultReader(),
+                                                                               Decimation.none(), samplePrecision,
+                                                                               ConversionListener.none());
+        embedSchema = mapper.mapToGasChromatographySchema(folder.toString());
+        signalSize = new ChFileFactory().getChFile(folder.resolve("FID1A.ch").toString()).getSignal().size();
+        runtime.warmUp();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteInputs() throws IOException {
+        if (temporaryDirectory != null) {
+            TestFolders.deleteFolder(temporaryDirectory);
+        }
+    }
+
+    @Benchmark
+    public void write(Output output) throws IOException {
+        runtime.write(embedSchema, output);
+        output.points += signalSize;
+    }
+
+    @Benchmark
+    public void convertTo(Output output) throws IOException, JAXBException {
+        converter.convertTo(folder, output);
+        output.points += signalSize;
+    }
+
+    /**
+     * Discards the document, counting written points and bytes. JMH reports both as rates.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Output extends OutputStream {
+
+        public long points;
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            points = 0;
+            bytes = 0;
+        }
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package fr.ifpen.allotropeconverters.gc.chemstation;
+
+import fr.ifpen.allotropeconverters.gc.schema.ChromatographyColumnDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading of the column information of acq.txt, with one or several values per line, and of a whole 6890 method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColumnInformationMapperBenchmark {
+
+    @Param({"src/test/resources/V179.D", "src/test/resources/V179_2.D", "src/test/resources/V181.D"})
+    public String folder;
+
+    private final ColumnInformationMapper columnInformationMapper = new ColumnInformationMapper();
+
+    @Benchmark
+    public ChromatographyColumnDocument readColumnDocumentFromFile() throws IOException {
+        return columnInformationMapper.readColumnDocumentFromFile(folder);
+    }
+}
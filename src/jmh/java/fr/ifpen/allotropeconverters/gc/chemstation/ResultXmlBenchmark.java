@@ -0,0 +1,76 @@
+package fr.ifpen.allotropeconverters.gc.chemstation;
+
+import fr.ifpen.allotropeconverters.gc.SyntheticRun;
+import fr.ifpen.allotropeconverters.gc.TestFolders;
+import jakarta.xml.bind.JAXBException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading of Result.xml, streamed and, as a baseline, unmarshalled by JAXB. 0 peaks stands for the fixture; other counts are synthetic results, like those of
+ * detailed hydrocarbon analyses with thousands of compounds.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultXmlBenchmark {
+
+    @Param({"0", "5000"})
+    public int peaks;
+
+    private final ChemStationResultReader resultReader = new ChemStationResultReader();
+    private String folder;
+    private Path temporaryDirectory;
+
+    @Setup(Level.Trial)
+    public void createInputs() throws IOException, JAXBException {
+        if (peaks == 0) {
+            folder = "src/test/resources/V179.D";
+        } else {
+            temporaryDirectory = Files.createTempDirectory("gc2asm-benchmark");
+            folder = SyntheticRun.defaults()
+                                 .withPoints(100 * peaks)
+                                 .withPeaks(peaks)
+                                 .writeDFolder(temporaryDirectory, "synthetic.D")
+                                 .toString();
+        }
+        resultReader.warmUp();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteInputs() throws IOException {
+        if (temporaryDirectory != null) {
+            TestFolders.deleteFolder(temporaryDirectory);
+        }
+    }
+
+    @Benchmark
+    public ChemStationResult read() throws JAXBException {
+        return resultReader.read(folder);
+    }
+
+    @Benchmark
+    public ChemStationResult readWithJaxb() throws JAXBException {
+        return resultReader.readWithJaxb(new File(folder, "Result.xml"));
+    }
+}
@@ -0,0 +1,93 @@
+package fr.ifpen.allotropeconverters.gc.chemstation.chfile;
+
+import fr.ifpen.allotropeconverters.gc.SyntheticRun;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of .ch files already in memory, to measure parseData without the disk.<br>
+ * 0 points stands for the test fixtures; other sizes are synthetic 5 Hz traces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ChFileBenchmark {
+
+    @Param({"0", "1000000", "10000000"})
+    public int points;
+
+    private ByteBuffer v179Input;
+    private ByteBuffer v181Input;
+
+    @Setup(Level.Trial)
+    public void readInputs() throws IOException {
+        if (points == 0) {
+            v179Input = ReadHelpers.readFile(Path.of("src/test/resources/V179.D/FID1A.ch"));
+            v181Input = ReadHelpers.readFile(Path.of("src/test/resources/V181.D/V181.ch"));
+            return;
+        }
+
+        Path directory = Files.createTempDirectory("gc2asm-benchmark");
+        Path v179File = directory.resolve("V179.ch");
+        Path v181File = directory.resolve("V181.ch");
+        SyntheticRun run = SyntheticRun.defaults().withPoints(points).withPeaks(points / 1000);
+        run.withVersion("179").writeChFile(v179File);
+        run.withVersion("181").writeChFile(v181File);
+
+        v179Input = ReadHelpers.readFile(v179File);
+        v181Input = ReadHelpers.readFile(v181File);
+
+        Files.delete(v179File);
+        Files.delete(v181File);
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public ChFile parseData179(DecodedPoints decodedPoints) throws IOException {
+        ChFile chFile = new ChFile179(v179Input);
+        decodedPoints.points += chFile.getSignal().size();
+        return chFile;
+    }
+
+    @Benchmark
+    public ChFile parseData181(DecodedPoints decodedPoints) throws IOException {
+        ChFile chFile = new ChFile181(v181Input);
+        decodedPoints.points += chFile.getSignal().size();
+        return chFile;
+    }
+
+    /**
+     * Reported by JMH as a rate: decoded points per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class DecodedPoints {
+
+        public long points;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            points = 0;
+        }
+    }
+}
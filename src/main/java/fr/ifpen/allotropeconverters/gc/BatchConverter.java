@@ -0,0 +1,244 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import fr.ifpen.allotropeconverters.gc.BatchReport.FolderResult;
+import fr.ifpen.allotropeconverters.gc.chemstation.chfile.ChFileFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Converts every .D folder of a directory tree concurrently, writing one ASM file per folder.<br>
+ * Folders are started against the heap budget of the options, costliest first, see {@link BatchScheduler}. A folder
+ * that fails to convert is reported and does not stop the others.
+ */
+final class BatchConverter {
+
+    private static final String D_FOLDER_EXTENSION = ".d";
+    private static final String OUTPUT_EXTENSION = ".json";
+    private static final String COMPRESSED_EXTENSION = ".gz";
+
+    private final GcToAllotropeJsonConverter converter;
+    private final BatchOptions options;
+
+    BatchConverter(GcToAllotropeJsonConverter converter, BatchOptions options) {
+        this.converter = converter;
+        this.options = options;
+    }
+
+    BatchReport convertAll(Path root, Path outDir) throws IOException, InterruptedException {
+        List<BatchScheduler.Job> jobs = new ArrayList<>();
+        ChFileFactory chFileFactory = new ChFileFactory();
+        Map<Path, IOException> unreadableFiles = new LinkedHashMap<>();
+        for (Path folder : findDFolders(root, unreadableFiles)) {
+            jobs.add(BatchScheduler.estimate(folder, chFileFactory, options.isCompressed()));
+        }
+        BatchScheduler scheduler = new BatchScheduler(jobs, options.getHeapBudget(), options.getMaxInFlight());
+        Queue<FolderResult> results = new ConcurrentLinkedQueue<>();
+        // Unreadable directories may hold .D folders: they are reported as failed rather than left out.
+        unreadableFiles.forEach((file, e) -> results.add(new FolderResult(file, null, e, Duration.ZERO)));
+
+        ExecutorService executor = options.createExecutor();
+        try {
+            BatchScheduler.Job job;
+            while ((job = scheduler.admit()) != null) {
+                Path folder = job.getFolder();
+                Path output = getOutputPath(root, folder, outDir);
+                if (options.isCompressed()) {
+                    output = output.resolveSibling(output.getFileName() + COMPRESSED_EXTENSION);
+                }
+                Path folderOutput = output;
+                BatchScheduler.Job admittedJob = job;
+
+                try {
+                    executor.execute(() -> {
+                        try {
+                            convertFolder(converter, folder, folderOutput, options.getCache(), results::add);
+                        } finally {
+                            scheduler.release(admittedJob);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    scheduler.release(admittedJob);
+                    throw e;
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                // Large batches can take much longer than a minute.
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            throw e;
+        }
+
+        List<FolderResult> sortedResults = new ArrayList<>(results);
+        sortedResults.sort(Comparator.comparing(FolderResult::getFolder));
+        return new BatchReport(sortedResults);
+    }
+
+    /**
+     * Returns the .D folders of the tree, the root included. .D folders are not searched for nested ones.
+     *
+     * @throws IOException if a directory of the tree cannot be read
+     */
+    static List<Path> findDFolders(Path root) throws IOException {
+        Map<Path, IOException> unreadableFiles = new LinkedHashMap<>();
+        List<Path> folders = findDFolders(root, unreadableFiles);
+        if (!unreadableFiles.isEmpty()) {
+            throw unreadableFiles.values().iterator().next();
+        }
+        return folders;
+    }
+
+    /**
+     * Returns the .D folders of the tree like {@link #findDFolders(Path)}, adding the files and directories that cannot
+     * be read to the map instead of failing.
+     */
+    static List<Path> findDFolders(Path root, Map<Path, IOException> unreadableFiles) throws IOException {
+        List<Path> folders = new ArrayList<>();
+
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+                if (isDFolder(directory)) {
+                    folders.add(directory);
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exception) {
+                unreadableFiles.put(file, exception);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+
+        return folders;
+    }
+
+    static boolean isDFolder(Path directory) {
+        Path fileName = directory.getFileName();
+        return fileName != null && fileName.toString().toLowerCase(Locale.ROOT).endsWith(D_FOLDER_EXTENSION);
+    }
+
+    /**
+     * Mirrors the layout of the input tree, replacing the .D extension of each folder with .json.
+     */
+    static Path getOutputPath(Path root, Path folder, Path outDir) {
+        Path relative = root.relativize(folder);
+        if (relative.toString().isEmpty()) {
+            relative = folder.getFileName();
+        }
+        String folderName = relative.getFileName().toString();
+        String outputName = folderName.substring(0, folderName.length() - D_FOLDER_EXTENSION.length()) + OUTPUT_EXTENSION;
+
+        return outDir.resolve(relative).resolveSibling(outputName);
+    }
+
+    /**
+     * Converts the folder to the output file, catching any failure but fatal errors in the returned result. Outputs
+     * with the .gz extension are compressed.
+     *
+     * @param cache cache of converted documents, or null
+     */
+    static FolderResult convertFolder(GcToAllotropeJsonConverter converter, Path folder, Path output,
+                                      ConversionCache cache) {
+        long start = System.nanoTime();
+        try {
+            boolean cached = writeAtomically(converter, folder, output, cache);
+            return new FolderResult(folder, output, null, Duration.ofNanos(System.nanoTime() - start), cached);
+        } catch (Exception e) {
+            return new FolderResult(folder, null, e, Duration.ofNanos(System.nanoTime() - start));
+        } catch (VirtualMachineError e) {
+            throw e;
+        } catch (Error e) {
+            // Such as a linkage or assertion error, which does not compromise the other folders.
+            return new FolderResult(folder, null, new ExecutionException(e),
+                                    Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+
+    /**
+     * Converts the folder like {@link #convertFolder(GcToAllotropeJsonConverter, Path, Path, ConversionCache)}, passing
+     * the result to the consumer. Fatal errors, such as {@link OutOfMemoryError}, are passed as a failed result too,
+     * so that the folder is not missing from the report, then rethrown.
+     */
+    static void convertFolder(GcToAllotropeJsonConverter converter, Path folder, Path output, ConversionCache cache,
+                              Consumer<FolderResult> resultConsumer) {
+        long start = System.nanoTime();
+        FolderResult result;
+        try {
+            result = convertFolder(converter, folder, output, cache);
+        } catch (VirtualMachineError e) {
+            resultConsumer.accept(new FolderResult(folder, null, new ExecutionException(e),
+                                                   Duration.ofNanos(System.nanoTime() - start)));
+            throw e;
+        }
+        resultConsumer.accept(result);
+    }
+
+    /**
+     * Streams the document, or copies it from the cache, to a temporary file moved in place once complete, so that a
+     * failed or interrupted conversion never leaves a truncated output behind.
+     *
+     * @return whether the document was copied from the cache
+     */
+    private static boolean writeAtomically(GcToAllotropeJsonConverter converter, Path folder, Path output,
+                                           ConversionCache cache) throws Exception {
+        Files.createDirectories(output.getParent());
+        Path temporaryFile = Files.createTempFile(output.getParent(), output.getFileName().toString(), ".tmp");
+        try {
+            boolean compressed = output.getFileName().toString().endsWith(COMPRESSED_EXTENSION);
+            String key = cache != null ? cache.computeKey(folder, converter.getSettings() + ";compressed=" + compressed)
+                                       : null;
+            boolean cached = key != null && cache.copyTo(key, temporaryFile);
+            if (!cached) {
+                try (OutputStream out = openOutput(temporaryFile, compressed)) {
+                    converter.convertTo(folder, out);
+                }
+                if (key != null) {
+                    cache.put(key, temporaryFile);
+                }
+            }
+            Files.move(temporaryFile, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return cached;
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    private static OutputStream openOutput(Path file, boolean compressed) throws IOException {
+        OutputStream out = Files.newOutputStream(file);
+        if (compressed) {
+            // The input is buffered in blocks, which are written to the file once compressed.
+            return new ParallelGzipOutputStream(out);
+        }
+        return new BufferedOutputStream(out);
+    }
+}
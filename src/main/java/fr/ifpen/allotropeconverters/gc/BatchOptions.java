@@ -0,0 +1,119 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Settings of a batch conversion. Instances are immutable: each {@code with} method returns a modified copy.
+ */
+public final class BatchOptions {
+
+    private final int parallelism;
+    private final int maxInFlight;
+    private final Supplier<ExecutorService> executorFactory;
+    private final boolean compressed;
+    private final ConversionCache cache;
+    private final long heapBudget;
+
+    private BatchOptions(int parallelism, int maxInFlight, Supplier<ExecutorService> executorFactory, boolean compressed,
+                         ConversionCache cache, long heapBudget) {
+        if (parallelism < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("Parallelism and in-flight limit must be positive");
+        }
+        if (heapBudget < 1) {
+            throw new IllegalArgumentException("Heap budget must be positive");
+        }
+        this.parallelism = parallelism;
+        this.maxInFlight = maxInFlight;
+        this.executorFactory = executorFactory;
+        this.compressed = compressed;
+        this.cache = cache;
+        this.heapBudget = heapBudget;
+    }
+
+    /**
+     * One worker per available processor, at most two folders per worker submitted at any time, and half the maximum
+     * heap for the folders being converted.
+     */
+    public static BatchOptions defaults() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        return new BatchOptions(processors, 2 * processors, null, false, null, Runtime.getRuntime().maxMemory() / 2);
+    }
+
+    /**
+     * Sets the number of threads of the default pool. Ignored when an executor factory is set.
+     */
+    public BatchOptions withParallelism(int parallelism) {
+        return new BatchOptions(parallelism, maxInFlight, executorFactory, compressed, cache, heapBudget);
+    }
+
+    /**
+     * Sets the maximum number of folders submitted and not yet converted, which bounds memory use whatever the
+     * executor.
+     */
+    public BatchOptions withMaxInFlight(int maxInFlight) {
+        return new BatchOptions(parallelism, maxInFlight, executorFactory, compressed, cache, heapBudget);
+    }
+
+    /**
+     * Sets the factory of the executor running the conversions, for instance
+     * {@code Executors::newVirtualThreadPerTaskExecutor} on Java 21 and later. The executor is shut down at the end of
+     * the batch.
+     */
+    public BatchOptions withExecutor(Supplier<ExecutorService> executorFactory) {
+        return new BatchOptions(parallelism, maxInFlight, executorFactory, compressed, cache, heapBudget);
+    }
+
+    /**
+     * Sets whether documents are written gzip-compressed, to {@code .json.gz} files, as they stream. Blocks of each
+     * document are compressed concurrently, see {@link ParallelGzipOutputStream}.
+     */
+    public BatchOptions withCompression(boolean compressed) {
+        return new BatchOptions(parallelism, maxInFlight, executorFactory, compressed, cache, heapBudget);
+    }
+
+    /**
+     * Sets the cache of converted documents: folders whose inputs are unchanged since a previous batch are copied from
+     * it instead of being converted. The cache is left open at the end of the batch.
+     */
+    public BatchOptions withCache(ConversionCache cache) {
+        return new BatchOptions(parallelism, maxInFlight, executorFactory, compressed, cache, heapBudget);
+    }
+
+    /**
+     * Sets the heap the folders being converted may take together, as estimated from the size and version of their
+     * .ch files. Folders are started while their estimates fit in the budget, in turn the costliest and the cheapest,
+     * and a folder whose estimate exceeds the budget is converted alone.
+     */
+    public BatchOptions withHeapBudget(long heapBudget) {
+        return new BatchOptions(parallelism, maxInFlight, executorFactory, compressed, cache, heapBudget);
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public long getHeapBudget() {
+        return heapBudget;
+    }
+
+    public boolean isCompressed() {
+        return compressed;
+    }
+
+    /**
+     * Returns the cache of converted documents, or null if there is none.
+     */
+    public ConversionCache getCache() {
+        return cache;
+    }
+
+    ExecutorService createExecutor() {
+        return executorFactory != null ? executorFactory.get() : Executors.newFixedThreadPool(parallelism);
+    }
+}
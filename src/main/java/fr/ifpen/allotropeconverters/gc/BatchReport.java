@@ -0,0 +1,88 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Outcome of a batch conversion, one result per .D folder found, and a failed one per file or directory of the tree
+ * that could not be read.
+ */
+public final class BatchReport {
+
+    private final List<FolderResult> results;
+
+    BatchReport(List<FolderResult> results) {
+        this.results = List.copyOf(results);
+    }
+
+    public List<FolderResult> getResults() {
+        return results;
+    }
+
+    public long getSucceededCount() {
+        return results.stream().filter(FolderResult::isSuccess).count();
+    }
+
+    public long getCachedCount() {
+        return results.stream().filter(FolderResult::isCached).count();
+    }
+
+    public long getFailedCount() {
+        return results.size() - getSucceededCount();
+    }
+
+    public static final class FolderResult {
+
+        private final Path folder;
+        private final Path output;
+        private final Exception error;
+        private final Duration duration;
+        private final boolean cached;
+
+        FolderResult(Path folder, Path output, Exception error, Duration duration) {
+            this(folder, output, error, duration, false);
+        }
+
+        FolderResult(Path folder, Path output, Exception error, Duration duration, boolean cached) {
+            this.folder = folder;
+            this.output = output;
+            this.error = error;
+            this.duration = duration;
+            this.cached = cached;
+        }
+
+        public Path getFolder() {
+            return folder;
+        }
+
+        /**
+         * Returns the written ASM file, or null if the conversion failed.
+         */
+        public Path getOutput() {
+            return output;
+        }
+
+        /**
+         * Returns the reason of the failure, or null if the conversion succeeded.
+         */
+        public Exception getError() {
+            return error;
+        }
+
+        public Duration getDuration() {
+            return duration;
+        }
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+
+        /**
+         * Returns whether the output was copied from the conversion cache rather than converted.
+         */
+        public boolean isCached() {
+            return cached;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import fr.ifpen.allotropeconverters.gc.chemstation.chfile.ChFileEstimate;
+import fr.ifpen.allotropeconverters.gc.chemstation.chfile.ChFileFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Admits the folders of a batch against a heap budget, alternating between the costliest and the cheapest.<br>
+ * The heap a folder takes is estimated from the version and size of its .ch files before any is decoded, see
+ * {@link fr.ifpen.allotropeconverters.gc.chemstation.chfile.ChFileEstimate}. Folders are admitted in turn from the
+ * costliest and from the cheapest end of those that fit in the budget left: large runs start early and are spread over
+ * the batch, and small runs start alongside them instead of waiting behind them, whether the budget or the in-flight
+ * limit is the bottleneck. A folder costlier than the whole budget is admitted alone.<br>
+ * The read buffers decoding threads keep between files are reserved out of the budget, one per in-flight folder.
+ */
+final class BatchScheduler {
+
+    // Result.xml, acq.txt and the document being written, whatever the size of the samples
+    static final long FOLDER_OVERHEAD = 1L << 20;
+    private static final String CH_EXTENSION = ".ch";
+
+    private final long heapBudget;
+    private final int maxInFlight;
+    private final List<Job> pendingJobs;
+    private long heapInUse;
+    private int inFlight;
+    private boolean cheapestNext;
+
+    BatchScheduler(List<Job> jobs, long heapBudget, int maxInFlight) {
+        long retainedReadBytes = 0;
+        for (Job job : jobs) {
+            retainedReadBytes = Math.max(retainedReadBytes, job.retainedReadBytes);
+        }
+        this.heapBudget = heapBudget - Math.min(maxInFlight, jobs.size()) * retainedReadBytes;
+        this.maxInFlight = maxInFlight;
+        this.pendingJobs = new ArrayList<>(jobs);
+        // Ties keep the order of the folders.
+        pendingJobs.sort(Comparator.comparingLong(Job::getHeapBytes).reversed());
+    }
+
+    /**
+     * Estimates the heap the conversion of the folder takes. Files that cannot be estimated are left for the conversion
+     * to report.
+     *
+     * @param compressed whether the document is compressed as it streams, which buffers its blocks
+     */
+    static Job estimate(Path folder, ChFileFactory chFileFactory, boolean compressed) {
+        long heapBytes = FOLDER_OVERHEAD + (compressed ? ParallelGzipOutputStream.MAX_BUFFERED_BYTES : 0);
+        long retainedReadBytes = 0;
+        try (Stream<Path> files = Files.list(folder)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(CH_EXTENSION)) {
+                    try {
+                        ChFileEstimate estimate = chFileFactory.estimate(file.toString());
+                        heapBytes += estimate.getHeapBytes();
+                        retainedReadBytes = Math.max(retainedReadBytes, estimate.getRetainedReadBytes());
+                    } catch (IOException e) {
+                        // Not a .ch file the conversion can read: it fails early, using no more than its header.
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // Same as above, for the folder.
+        }
+        return new Job(folder, heapBytes, retainedReadBytes);
+    }
+
+    /**
+     * Waits for a folder to fit in the budget and in the in-flight limit, then admits it.
+     *
+     * @return the admitted folder, to be passed to {@link #release(Job)} once converted, or null if none is left
+     */
+    synchronized Job admit() throws InterruptedException {
+        while (!pendingJobs.isEmpty()) {
+            Job job = inFlight < maxInFlight ? findAdmissibleJob() : null;
+            if (job != null) {
+                heapInUse += job.heapBytes;
+                inFlight++;
+                cheapestNext = !cheapestNext;
+                return job;
+            }
+            wait();
+        }
+        return null;
+    }
+
+    synchronized void release(Job job) {
+        heapInUse -= job.heapBytes;
+        inFlight--;
+        notifyAll();
+    }
+
+    synchronized long getHeapInUse() {
+        return heapInUse;
+    }
+
+    /**
+     * Removes and returns the costliest or the cheapest pending job fitting in the budget left, in turn, or null if
+     * none does.
+     */
+    private Job findAdmissibleJob() {
+        int admissibleIndex = -1;
+        for (int i = 0; i < pendingJobs.size(); i++) {
+            Job job = pendingJobs.get(i);
+            if (heapInUse + job.heapBytes <= heapBudget || inFlight == 0) {
+                // The first of equally cheap jobs keeps the order of the folders.
+                if (admissibleIndex < 0 || job.heapBytes < pendingJobs.get(admissibleIndex).heapBytes) {
+                    admissibleIndex = i;
+                }
+                if (!cheapestNext) {
+                    break;
+                }
+            }
+        }
+        return admissibleIndex >= 0 ? pendingJobs.remove(admissibleIndex) : null;
+    }
+
+    /**
+     * A folder of the batch, with the heap its conversion is estimated to take.
+     */
+    static final class Job {
+
+        private final Path folder;
+        private final long heapBytes;
+        private final long retainedReadBytes;
+
+        Job(Path folder, long heapBytes) {
+            this(folder, heapBytes, 0);
+        }
+
+        /**
+         * @param retainedReadBytes read buffer the decoding of the folder may leave to its thread
+         */
+        Job(Path folder, long heapBytes, long retainedReadBytes) {
+            this.folder = folder;
+            this.heapBytes = heapBytes;
+            this.retainedReadBytes = retainedReadBytes;
+        }
+
+        Path getFolder() {
+            return folder;
+        }
+
+        long getHeapBytes() {
+            return heapBytes;
+        }
+
+        long getRetainedReadBytes() {
+            return retainedReadBytes;
+        }
+    }
+}
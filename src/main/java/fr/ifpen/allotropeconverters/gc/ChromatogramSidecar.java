@@ -0,0 +1,151 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Reads the binary sidecar holding the chromatogram arrays of a document written by
+ * {@link GcToAllotropeJsonConverter#convertWithSidecar}.<br>
+ * The sidecar is little-endian. It starts with a {@value #HEADER_LENGTH} byte header: the magic {@code GC2ASMBN} and
+ * the format version as an int, followed by padding. Each array follows as a block: a {@value #ARRAY_HEADER_LENGTH}
+ * byte header, made of the data type code (1 for float64) and three padding bytes, the CRC32C of the values as an int
+ * and the number of values as a long, then the values themselves. Blocks are 8-byte aligned.<br>
+ * In the JSON document, the chromatogram data cube has no {@code data} member but a {@value #REFERENCE_PROPERTY} one,
+ * giving the path of the sidecar relative to the document and the offset, length and checksum of each array block.<br>
+ * Arrays are memory-mapped rather than read: their values are only loaded from disk as they are accessed. Checking
+ * their checksum reads them whole, and is thus only done on request.
+ */
+public final class ChromatogramSidecar {
+
+    public static final String REFERENCE_PROPERTY = "data sidecar";
+
+    static final byte[] MAGIC = "GC2ASMBN".getBytes(StandardCharsets.US_ASCII);
+    static final int VERSION = 1;
+    static final int HEADER_LENGTH = 16;
+    static final int ARRAY_HEADER_LENGTH = 16;
+    static final byte FLOAT64 = 1;
+    static final String FLOAT64_NAME = "float64";
+
+    private final Path file;
+    private final long size;
+
+    private ChromatogramSidecar(Path file, long size) {
+        this.file = file;
+        this.size = size;
+    }
+
+    /**
+     * Opens a sidecar file, checking its header.
+     */
+    public static ChromatogramSidecar open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            long size = channel.size();
+            ByteBuffer header = size < HEADER_LENGTH ? null : channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_LENGTH)
+                                                                     .order(ByteOrder.LITTLE_ENDIAN);
+            if (header == null || !header.slice(0, MAGIC.length).equals(ByteBuffer.wrap(MAGIC))) {
+                throw new IOException(file + " is not a chromatogram sidecar");
+            }
+            int version = header.getInt(MAGIC.length);
+            if (version != VERSION) {
+                throw new IOException("Unsupported sidecar version " + version + " in " + file);
+            }
+            return new ChromatogramSidecar(file, size);
+        }
+    }
+
+    /**
+     * Opens the sidecar referenced by a chromatogram data cube of a document.
+     *
+     * @param jsonFile  the document, against which the path of the sidecar is resolved
+     * @param reference the {@value #REFERENCE_PROPERTY} member of the chromatogram data cube
+     */
+    public static ChromatogramSidecar open(Path jsonFile, JsonNode reference) throws IOException {
+        return open(jsonFile.resolveSibling(reference.required("path").asText()));
+    }
+
+    /**
+     * Maps the array block at the given offset, after checking its header, without reading its values.
+     *
+     * @return a read-only buffer of the values, backed by the file
+     */
+    public DoubleBuffer getArray(long offset) throws IOException {
+        return getArray(offset, false);
+    }
+
+    /**
+     * Maps the array block at the given offset, after checking its header.
+     *
+     * @param verify whether to check the checksum of the values, which reads them all from disk
+     * @return a read-only buffer of the values, backed by the file
+     */
+    public DoubleBuffer getArray(long offset, boolean verify) throws IOException {
+        if (offset < HEADER_LENGTH || offset > size - ARRAY_HEADER_LENGTH) {
+            throw new IOException("No array at offset " + offset + " of " + file);
+        }
+
+        try (FileChannel channel = FileChannel.open(file)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, offset, ARRAY_HEADER_LENGTH)
+                                       .order(ByteOrder.LITTLE_ENDIAN);
+            byte type = header.get(0);
+            int checksum = header.getInt(4);
+            long length = header.getLong(8);
+            if (type != FLOAT64) {
+                throw new IOException("Unsupported data type " + type + " at offset " + offset + " of " + file);
+            }
+            if (length < 0 || length > (size - offset - ARRAY_HEADER_LENGTH) / Double.BYTES) {
+                throw new IOException("Truncated array at offset " + offset + " of " + file);
+            }
+            if (length > Integer.MAX_VALUE / Double.BYTES) {
+                throw new IOException("Array too large to map at offset " + offset + " of " + file);
+            }
+
+            ByteBuffer values = channel.map(FileChannel.MapMode.READ_ONLY, offset + ARRAY_HEADER_LENGTH,
+                                            length * Double.BYTES);
+            if (verify) {
+                CRC32C crc = new CRC32C();
+                crc.update(values.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    throw new IOException("Checksum mismatch of the array at offset " + offset + " of " + file);
+                }
+            }
+            return values.order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+        }
+    }
+
+    /**
+     * Maps the arrays listed by the {@code dimensions} or {@code measures} member of a {@value #REFERENCE_PROPERTY}
+     * reference, without reading their values.
+     */
+    public List<DoubleBuffer> getArrays(JsonNode arrayReferences) throws IOException {
+        return getArrays(arrayReferences, false);
+    }
+
+    /**
+     * Maps the arrays listed by the {@code dimensions} or {@code measures} member of a {@value #REFERENCE_PROPERTY}
+     * reference.
+     *
+     * @param verify whether to check the checksums of the values, which reads them all from disk
+     */
+    public List<DoubleBuffer> getArrays(JsonNode arrayReferences, boolean verify) throws IOException {
+        List<DoubleBuffer> arrays = new ArrayList<>();
+        for (JsonNode arrayReference : arrayReferences) {
+            DoubleBuffer array = getArray(arrayReference.required("offset").asLong(), verify);
+            if (array.capacity() != arrayReference.required("length").asLong()) {
+                throw new IOException("Length mismatch of the array at offset " + arrayReference.get("offset") + " of "
+                                      + file);
+            }
+            arrays.add(array);
+        }
+        return arrays;
+    }
+}
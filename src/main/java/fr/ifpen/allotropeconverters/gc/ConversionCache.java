@@ -0,0 +1,440 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of converted documents, keyed by the content of the files the conversion reads: Result.xml, acq.txt and
+ * the .ch files of the .D folder, along with the converter version and settings.<br>
+ * A hit copies the stored document without parsing anything. Documents are kept up to a total size, beyond which the
+ * least recently used are evicted. The index survives restarts: it is a journal of additions, uses and removals,
+ * replayed and compacted when the cache is opened.<br>
+ * A cache is safe to share between the threads of a batch. Its directory is locked while it is open, so that another
+ * process cannot use it at the same time.
+ */
+public final class ConversionCache implements Closeable {
+
+    private static final String INDEX_FILE = "index";
+    private static final String LOCK_FILE = "lock";
+    private static final String OBJECTS_DIRECTORY = "objects";
+    private static final String INDEX_HEADER = "gc2asm-cache 1";
+    private static final List<String> INPUT_FILES = List.of("Result.xml", "acq.txt");
+    private static final String CH_EXTENSION = ".ch";
+    private static final int COMPACTION_THRESHOLD = 1000; // Journal records beyond twice the entries
+    private static final String CONVERTER_VERSION = computeConverterVersion();
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}"); // As computed by computeKey
+
+    private final Path directory;
+    private final long maxSize;
+    private final FileChannel lockChannel;
+    private final FileLock lock;
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true); // Sizes, in LRU order
+    private final Map<String, Integer> readers = new HashMap<>();
+    private long size;
+    private Writer journal;
+    private int journalRecords;
+
+    private ConversionCache(Path directory, long maxSize, FileChannel lockChannel, FileLock lock) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.lockChannel = lockChannel;
+        this.lock = lock;
+    }
+
+    /**
+     * Opens the cache stored in the directory, creating it if needed.
+     *
+     * @param maxSize total size of the stored documents, in bytes, beyond which the least recently used are evicted
+     * @throws IOException if the cache is unreadable, or already open in this or another process
+     */
+    public static ConversionCache open(Path directory, long maxSize) throws IOException {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Maximum size must be positive");
+        }
+        Files.createDirectories(directory.resolve(OBJECTS_DIRECTORY));
+
+        FileChannel lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                                                   StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new IOException("Conversion cache " + directory + " is already in use");
+        }
+
+        ConversionCache cache = new ConversionCache(directory, maxSize, lockChannel, lock);
+        try {
+            cache.readIndex();
+            cache.evict();
+        } catch (IOException | RuntimeException e) {
+            cache.close();
+            throw e;
+        }
+        return cache;
+    }
+
+    /**
+     * Computes the key of the conversion of a folder: a SHA-256 of the version and settings of the converter, and of
+     * the name and content of every input file.
+     *
+     * @param settings description of every setting changing the output
+     * @return null if the converter build cannot be identified, in which case documents must not be cached
+     */
+    public String computeKey(Path dFolder, String settings) throws IOException {
+        String converterVersion = getConverterVersion();
+        if (converterVersion == null) {
+            return null;
+        }
+        MessageDigest digest = createDigest();
+        digest.update((INDEX_HEADER + '\n' + converterVersion + '\n' + settings + '\n')
+                              .getBytes(StandardCharsets.UTF_8));
+
+        byte[] buffer = new byte[1 << 16];
+        for (Path file : findInputFiles(dFolder)) {
+            digest.update((file.getFileName().toString() + '\n').getBytes(StandardCharsets.UTF_8));
+            try {
+                updateDigest(digest, file, buffer);
+            } catch (NoSuchFileException e) {
+                // A missing file fails the conversion: the key just needs to differ from that of an empty file.
+                digest.update((byte) 0xff);
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Copies the document stored under the key to the target file, if any.
+     *
+     * @return whether the document was found
+     * @throws IllegalArgumentException if the key is not one computed by {@link #computeKey(Path, String)}
+     */
+    public boolean copyTo(String key, Path target) throws IOException {
+        checkKey(key);
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                return false;
+            }
+            appendToJournal("READ " + key);
+            // Pinned, so that it is not evicted while being copied.
+            readers.merge(key, 1, Integer::sum);
+        }
+
+        try {
+            Files.copy(getObjectPath(key), target, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (NoSuchFileException e) {
+            // Deleted behind the cache's back: forget it.
+            synchronized (this) {
+                removeEntry(key);
+            }
+            return false;
+        } finally {
+            synchronized (this) {
+                readers.computeIfPresent(key, (pinnedKey, count) -> count == 1 ? null : count - 1);
+            }
+        }
+    }
+
+    /**
+     * Stores a copy of the document under the key, then evicts the least recently used documents beyond the maximum
+     * size. Documents larger than the maximum size are not stored.
+     *
+     * @throws IllegalArgumentException if the key is not one computed by {@link #computeKey(Path, String)}
+     */
+    public void put(String key, Path document) throws IOException {
+        checkKey(key);
+        long documentSize = Files.size(document);
+        if (documentSize > maxSize) {
+            return;
+        }
+
+        Path object = getObjectPath(key);
+        Files.createDirectories(object.getParent());
+        Path temporaryFile = Files.createTempFile(object.getParent(), key, ".tmp");
+        try {
+            Files.copy(document, temporaryFile, StandardCopyOption.REPLACE_EXISTING);
+            synchronized (this) {
+                if (entries.containsKey(key)) {
+                    return; // Stored concurrently by another worker
+                }
+                Files.move(temporaryFile, object, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                entries.put(key, documentSize);
+                size += documentSize;
+                appendToJournal("PUT " + key + ' ' + documentSize);
+                evict();
+            }
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Returns the total size of the stored documents, in bytes.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+        } finally {
+            try {
+                lock.release();
+            } finally {
+                lockChannel.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the version of the converter, which changes the output of unchanged inputs: its implementation version,
+     * and a SHA-256 of the jar or class directory it is loaded from, so that builds without a version, or rebuilt
+     * without changing it, do not share documents.
+     *
+     * @return null if the converter is not loaded from a file, and thus cannot be told apart from other builds
+     */
+    static String getConverterVersion() {
+        return CONVERTER_VERSION;
+    }
+
+    private static String computeConverterVersion() {
+        String version = ConversionCache.class.getPackage().getImplementationVersion();
+        try {
+            CodeSource codeSource = ConversionCache.class.getProtectionDomain().getCodeSource();
+            if (codeSource == null || codeSource.getLocation() == null) {
+                return null;
+            }
+            Path location = Path.of(codeSource.getLocation().toURI());
+
+            MessageDigest digest = createDigest();
+            List<Path> files = new ArrayList<>();
+            if (Files.isDirectory(location)) {
+                try (Stream<Path> stream = Files.walk(location)) {
+                    stream.filter(Files::isRegularFile).sorted().forEach(files::add);
+                }
+            } else {
+                files.add(location);
+            }
+            byte[] buffer = new byte[1 << 16];
+            for (Path file : files) {
+                digest.update((location.relativize(file) + "\n").getBytes(StandardCharsets.UTF_8));
+                updateDigest(digest, file, buffer);
+            }
+            return (version != null ? version : "development") + '+' + HexFormat.of().formatHex(digest.digest());
+        } catch (IOException | URISyntaxException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns Result.xml, acq.txt and the .ch files of the folder, sorted by name.
+     */
+    private static List<Path> findInputFiles(Path dFolder) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String fileName : INPUT_FILES) {
+            files.add(dFolder.resolve(fileName));
+        }
+
+        List<Path> chFiles = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dFolder)) {
+            for (Path file : stream) {
+                if (file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(CH_EXTENSION)) {
+                    chFiles.add(file);
+                }
+            }
+        }
+        chFiles.sort(null);
+        files.addAll(chFiles);
+        return files;
+    }
+
+    private static void updateDigest(MessageDigest digest, Path file, byte[] buffer) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is required of every Java platform", e);
+        }
+    }
+
+    /**
+     * Checks that the key is a SHA-256 in lower case hexadecimal, which names the object file of the document without
+     * leaving the cache directory.
+     */
+    private static void checkKey(String key) {
+        if (key == null || !KEY_PATTERN.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid conversion cache key: " + key);
+        }
+    }
+
+    private Path getObjectPath(String key) {
+        return directory.resolve(OBJECTS_DIRECTORY).resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    /**
+     * Replays the journal, ignoring the truncated or unknown records an interrupted write may leave, then compacts it
+     * if it holds many more records than entries.
+     */
+    private void readIndex() throws IOException {
+        Path index = directory.resolve(INDEX_FILE);
+        int records = 0;
+        if (Files.exists(index)) {
+            try (BufferedReader reader = Files.newBufferedReader(index, StandardCharsets.UTF_8)) {
+                String header = reader.readLine();
+                if (header != null && !header.equals(INDEX_HEADER)) {
+                    throw new IOException("Unsupported conversion cache index " + index);
+                }
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    replay(line.split(" "));
+                    records++;
+                }
+            }
+        }
+
+        if (!Files.exists(index) || records > 2 * entries.size() + COMPACTION_THRESHOLD) {
+            compactIndex();
+        } else {
+            journal = Files.newBufferedWriter(index, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            journalRecords = records;
+        }
+    }
+
+    private void replay(String[] record) {
+        if (record.length < 2 || !KEY_PATTERN.matcher(record[1]).matches()) {
+            return; // Truncated or corrupted record
+        }
+        try {
+            if (record[0].equals("PUT") && record.length == 3) {
+                long documentSize = Long.parseLong(record[2]);
+                Long previousSize = entries.put(record[1], documentSize);
+                size += documentSize - (previousSize != null ? previousSize : 0);
+            } else if (record[0].equals("READ") && record.length == 2) {
+                entries.get(record[1]);
+            } else if (record[0].equals("REMOVE") && record.length == 2) {
+                Long previousSize = entries.remove(record[1]);
+                size -= previousSize != null ? previousSize : 0;
+            }
+        } catch (NumberFormatException e) {
+            // Truncated record
+        }
+    }
+
+    /**
+     * Rewrites the journal with one record per entry, least recently used first. If that fails, records are appended
+     * to the previous journal, which is still complete; if it cannot be reopened either, the cache is left closed.
+     */
+    private void compactIndex() throws IOException {
+        // Closed before being replaced, which Windows requires, and forgotten first, so that a failure to close it
+        // leaves no closed writer behind.
+        Writer previousJournal = journal;
+        journal = null;
+        if (previousJournal != null) {
+            previousJournal.close();
+        }
+        Path temporaryFile = Files.createTempFile(directory, INDEX_FILE, ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+                writer.write(INDEX_HEADER + '\n');
+                for (Map.Entry<String, Long> entry : entries.entrySet()) {
+                    writer.write("PUT " + entry.getKey() + ' ' + entry.getValue() + '\n');
+                }
+            }
+            Files.move(temporaryFile, directory.resolve(INDEX_FILE), StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+            journal = Files.newBufferedWriter(directory.resolve(INDEX_FILE), StandardCharsets.UTF_8,
+                                              StandardOpenOption.APPEND);
+        }
+        journalRecords = entries.size();
+    }
+
+    private void appendToJournal(String record) throws IOException {
+        if (journal == null) {
+            throw new IOException("Conversion cache " + directory + " is closed");
+        }
+        journal.write(record + '\n');
+        journal.flush();
+        if (++journalRecords > 2 * entries.size() + COMPACTION_THRESHOLD) {
+            compactIndex();
+        }
+    }
+
+    /**
+     * Removes the least recently used documents not being copied, until the total size fits the maximum.
+     */
+    private void evict() throws IOException {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        List<String> evicted = new ArrayList<>();
+        long remainingSize = size;
+        while (remainingSize > maxSize && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            if (!readers.containsKey(entry.getKey())) {
+                evicted.add(entry.getKey());
+                remainingSize -= entry.getValue();
+            }
+        }
+        for (String key : evicted) {
+            removeEntry(key);
+        }
+    }
+
+    private void removeEntry(String key) throws IOException {
+        Long documentSize = entries.remove(key);
+        if (documentSize == null) {
+            return;
+        }
+        size -= documentSize;
+        appendToJournal("REMOVE " + key);
+        Files.deleteIfExists(getObjectPath(key));
+    }
+}
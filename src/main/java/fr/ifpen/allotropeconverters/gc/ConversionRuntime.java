@@ -0,0 +1,114 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import fr.ifpen.allotropeconverters.gc.chemstation.ChemStationResultReader;
+import fr.ifpen.allotropeconverters.gc.schema.GasChromatographyTabularEmbedSchema;
+import jakarta.xml.bind.JAXBException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Expensive, thread-safe state shared by conversions: the JAXB context reading Result.xml files, the Jackson
+ * mapper and writer producing ASM JSON, and the threads reading the signals of multichannel runs.<br>
+ * A runtime is meant to live as long as the application. Converters created without one share {@link #getDefault()}.
+ */
+public final class ConversionRuntime {
+
+    private static final ConversionRuntime DEFAULT_RUNTIME = new ConversionRuntime();
+
+    private final ChemStationResultReader resultReader;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter schemaWriter;
+    private final Executor signalExecutor;
+
+    /**
+     * Reads signals with threads of the runtime, created as needed and stopped after a minute idle.
+     */
+    public ConversionRuntime() {
+        this(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "gc2asm-signal-reader");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * @param signalExecutor reads the signals of multichannel runs but the first, which blocks on files. Conversions
+     *                       wait for it: it must not be the executor running them, nor the common pool.
+     */
+    public ConversionRuntime(Executor signalExecutor) {
+        this.signalExecutor = signalExecutor;
+        resultReader = new ChemStationResultReader();
+
+        SimpleModule signalModule = new SimpleModule();
+        signalModule.addSerializer(new DoubleListViewSerializer());
+
+        objectMapper = JsonMapper.builder()
+                                 .addModule(new JavaTimeModule())
+                                 .addModule(signalModule)
+                                 .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                                 .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                                 // Shortest round-trip decimals, several times faster than Double.toString on Java 17
+                                 .enable(StreamWriteFeature.USE_FAST_DOUBLE_WRITER)
+                                 .build();
+        schemaWriter = objectMapper.writerFor(GasChromatographyTabularEmbedSchema.class);
+    }
+
+    public static ConversionRuntime getDefault() {
+        return DEFAULT_RUNTIME;
+    }
+
+    /**
+     * Builds the JAXB context and the Jackson serializers ahead of the first conversion, to keep it off the latency of
+     * the first request of a service.
+     */
+    public void warmUp() throws JAXBException, IOException {
+        resultReader.warmUp();
+        schemaWriter.writeValue(OutputStream.nullOutputStream(), new GasChromatographyTabularEmbedSchema());
+    }
+
+    public ChemStationResultReader getResultReader() {
+        return resultReader;
+    }
+
+    public Executor getSignalExecutor() {
+        return signalExecutor;
+    }
+
+    ObjectNode toTree(GasChromatographyTabularEmbedSchema embedSchema) {
+        return objectMapper.valueToTree(embedSchema);
+    }
+
+    /**
+     * Writes the document to the stream, flushing but not closing it.
+     */
+    void write(GasChromatographyTabularEmbedSchema embedSchema, OutputStream out) throws IOException {
+        schemaWriter.writeValue(out, embedSchema);
+    }
+
+    /**
+     * Creates a generator writing to the stream, for documents written piece by piece. Closing it does not close the
+     * stream.
+     */
+    JsonGenerator createGenerator(OutputStream out) throws IOException {
+        return objectMapper.createGenerator(out);
+    }
+
+    /**
+     * Writes a part of a document, such as a gas chromatography document, with the generator.
+     */
+    void writeValue(JsonGenerator generator, Object value) throws IOException {
+        objectMapper.writeValue(generator, value);
+    }
+}
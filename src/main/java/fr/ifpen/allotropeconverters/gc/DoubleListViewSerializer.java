@@ -0,0 +1,95 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import fr.ifpen.allotropeconverters.gc.chemstation.chfile.DoubleListView;
+
+import java.io.IOException;
+
+/**
+ * Writes the chromatogram arrays one primitive at a time, straight from the decoded signal.<br>
+ * Exact elements are written with the shortest decimal that reads back as the same double. Elements rounded to a
+ * number of decimals are written as fixed-point decimals, digit by digit, without formatting a double.
+ */
+class DoubleListViewSerializer extends StdSerializer<DoubleListView> {
+
+    private static final long[] POWERS_OF_TEN = new long[18];
+    private static final double MAX_FIXED_POINT = 1e17; // Scaled values below it fit a long with room to spare
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = 10 * POWERS_OF_TEN[i - 1];
+        }
+    }
+
+    DoubleListViewSerializer() {
+        super(DoubleListView.class);
+    }
+
+    @Override
+    public void serialize(DoubleListView values, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        int size = values.size();
+        int fractionDigits = values.getFractionDigits();
+        generator.writeStartArray(values, size);
+        // Token buffers, which build trees, would keep fixed-point decimals as text: they get the doubles.
+        if (fractionDigits < 0 || generator instanceof TokenBuffer) {
+            for (int i = 0; i < size; i++) {
+                generator.writeNumber(values.getDouble(i));
+            }
+        } else {
+            char[] buffer = new char[24];
+            long scale = POWERS_OF_TEN[fractionDigits];
+            for (int i = 0; i < size; i++) {
+                double value = values.getDouble(i);
+                double scaled = value * scale;
+                if (Math.abs(scaled) < MAX_FIXED_POINT) {
+                    int length = formatFixedPoint(Math.round(scaled), fractionDigits, buffer);
+                    generator.writeNumber(buffer, 0, length);
+                } else {
+                    generator.writeNumber(value); // Also NaN and infinities
+                }
+            }
+        }
+        generator.writeEndArray();
+    }
+
+    /**
+     * Writes {@code scaled / 10^fractionDigits} as a decimal, without trailing zeros but with at least one decimal, as
+     * doubles are written: 1.5, 2.0.
+     *
+     * @return the number of characters written
+     */
+    static int formatFixedPoint(long scaled, int fractionDigits, char[] buffer) {
+        long unsigned = Math.abs(scaled);
+        long integerPart = unsigned / POWERS_OF_TEN[fractionDigits];
+        long fractionPart = unsigned % POWERS_OF_TEN[fractionDigits];
+
+        // Digits are written backwards from the end of the buffer, then moved to its start.
+        int position = buffer.length;
+        int trailingZeros = 0;
+        while (trailingZeros < fractionDigits - 1 && fractionPart % 10 == 0) {
+            fractionPart /= 10;
+            trailingZeros++;
+        }
+        int writtenFractionDigits = Math.max(1, fractionDigits - trailingZeros);
+        for (int i = 0; i < writtenFractionDigits; i++) {
+            buffer[--position] = (char) ('0' + fractionPart % 10);
+            fractionPart /= 10;
+        }
+        buffer[--position] = '.';
+        do {
+            buffer[--position] = (char) ('0' + integerPart % 10);
+            integerPart /= 10;
+        } while (integerPart != 0);
+        if (scaled < 0) {
+            buffer[--position] = '-';
+        }
+
+        int length = buffer.length - position;
+        System.arraycopy(buffer, position, buffer, 0, length);
+        return length;
+    }
+}
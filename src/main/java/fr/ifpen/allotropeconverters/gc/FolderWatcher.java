@@ -0,0 +1,302 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import fr.ifpen.allotropeconverters.gc.BatchReport.FolderResult;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Watches a directory tree where instruments write .D folders, and converts each folder once its run is complete.<br>
+ * A folder is considered complete when its Result.xml and acq.txt files and at least one .ch file exist, and none of
+ * them, every .ch signal included, has changed for the quiet period. Folders changed again later, for instance by a
+ * reprocessing, are converted again.<br>
+ * Outputs follow the layout of {@link GcToAllotropeJsonConverter#convertAll}.
+ */
+public final class FolderWatcher implements Closeable {
+
+    private static final List<String> REQUIRED_FILES = List.of("Result.xml", "acq.txt");
+    private static final String CH_EXTENSION = ".ch";
+
+    private final GcToAllotropeJsonConverter converter;
+    private final Path root;
+    private final Path outDir;
+    private final long quietPeriodNanos;
+    private final Consumer<FolderResult> listener;
+    private final WatchService watchService;
+    private final ExecutorService workers;
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    private final Map<Path, PendingFolder> pendingFolders = new HashMap<>();
+    private final Set<Path> convertingFolders = ConcurrentHashMap.newKeySet();
+    private final Thread watchThread;
+    private FileTime startTime;
+
+    /**
+     * @param quietPeriod time without any change after which a folder is checked for completion
+     * @param workerCount number of folders converted concurrently
+     * @param listener    called from the worker threads with the result of each conversion
+     */
+    public FolderWatcher(GcToAllotropeJsonConverter converter, Path root, Path outDir, Duration quietPeriod, int workerCount,
+                         Consumer<FolderResult> listener) throws IOException {
+        this.converter = converter;
+        this.root = root;
+        this.outDir = outDir;
+        this.quietPeriodNanos = quietPeriod.toNanos();
+        this.listener = listener;
+        this.watchService = root.getFileSystem().newWatchService();
+        this.workers = Executors.newFixedThreadPool(workerCount);
+        this.watchThread = new Thread(this::watch, "gc2asm-folder-watcher");
+        this.watchThread.setDaemon(true);
+    }
+
+    /**
+     * Registers the tree and starts watching it. Folders already complete at that time are not converted.
+     */
+    public void start() throws IOException {
+        startTime = FileTime.fromMillis(System.currentTimeMillis());
+        registerTree(root, null);
+        watchThread.start();
+    }
+
+    /**
+     * Stops watching, and waits for the conversions already started.
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        watchThread.interrupt();
+        try {
+            // The watch thread submits conversions until it ends: workers are shut down once it has.
+            watchThread.join();
+            workers.shutdown();
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void watch() {
+        // A folder is converted after two identical checks, one quiet period apart: two to three quiet periods after
+        // its last change.
+        long pollNanos = Math.max(1, quietPeriodNanos / 2);
+        try {
+            while (true) {
+                WatchKey key = watchService.poll(pollNanos, TimeUnit.NANOSECONDS);
+                while (key != null) {
+                    processEvents(key);
+                    key = watchService.poll();
+                }
+                checkPendingFolders();
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Closed
+        }
+    }
+
+    private void processEvents(WatchKey key) {
+        Path directory = watchedDirectories.get(key);
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Events were lost: look again at every folder changed while watching.
+                registerTreeQuietly(root, startTime);
+                continue;
+            }
+            if (directory == null) {
+                continue;
+            }
+
+            Path path = directory.resolve((Path) event.context());
+            if (BatchConverter.isDFolder(directory)) {
+                markPending(directory);
+            } else if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                // Files may have been written before the directory was registered.
+                registerTreeQuietly(path, FileTime.fromMillis(0));
+            }
+        }
+
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+        }
+    }
+
+    private void checkPendingFolders() {
+        long now = System.nanoTime();
+
+        Iterator<Map.Entry<Path, PendingFolder>> iterator = pendingFolders.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, PendingFolder> entry = iterator.next();
+            PendingFolder pendingFolder = entry.getValue();
+            if (now - pendingFolder.lastChange < quietPeriodNanos) {
+                continue;
+            }
+
+            Path folder = entry.getKey();
+            if (convertingFolders.contains(folder)) {
+                // Changed during its conversion: converted again once that one is over, so that the last one wins.
+                continue;
+            }
+            List<Object> state = readRunFilesState(folder);
+            if (state != null && state.equals(pendingFolder.state)) {
+                iterator.remove();
+                convert(folder);
+            } else {
+                // Missing or still changing files: check again after another quiet period.
+                pendingFolder.state = state;
+                pendingFolder.lastChange = now;
+            }
+        }
+    }
+
+    private void convert(Path folder) {
+        Path output = BatchConverter.getOutputPath(root, folder, outDir);
+        convertingFolders.add(folder);
+        try {
+            workers.execute(() -> {
+                try {
+                    BatchConverter.convertFolder(converter, folder, output, null, listener);
+                } finally {
+                    convertingFolders.remove(folder);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            convertingFolders.remove(folder);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the files a conversion of the folder reads: Result.xml, acq.txt and every .ch file, sorted by name.
+     * Returns null if one of them is missing, or if there is no .ch file yet.
+     */
+    static List<Path> listRunFiles(Path folder) {
+        List<Path> files = new ArrayList<>();
+        for (String fileName : REQUIRED_FILES) {
+            Path file = folder.resolve(fileName);
+            if (!Files.isRegularFile(file)) {
+                return null;
+            }
+            files.add(file);
+        }
+        try (Stream<Path> folderFiles = Files.list(folder)) {
+            folderFiles.filter(file -> file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(CH_EXTENSION))
+                       .sorted()
+                       .forEach(files::add);
+        } catch (IOException e) {
+            return null;
+        }
+        return files.size() > REQUIRED_FILES.size() ? files : null;
+    }
+
+    /**
+     * Returns the names, sizes and modification times of the files a conversion reads, or null if one is missing.
+     */
+    static List<Object> readRunFilesState(Path folder) {
+        List<Path> files = listRunFiles(folder);
+        if (files == null) {
+            return null;
+        }
+        List<Object> state = new ArrayList<>();
+        for (Path file : files) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                state.add(file.getFileName());
+                state.add(attributes.size());
+                state.add(attributes.lastModifiedTime());
+            } catch (IOException e) {
+                return null;
+            }
+        }
+        return state;
+    }
+
+    private static boolean isChangedSince(Path folder, FileTime time) {
+        List<Path> files = listRunFiles(folder);
+        if (files == null) {
+            // Not written yet: the run is still in progress.
+            return true;
+        }
+        for (Path file : files) {
+            try {
+                if (Files.getLastModifiedTime(file).compareTo(time) >= 0) {
+                    return true;
+                }
+            } catch (IOException e) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void markPending(Path folder) {
+        PendingFolder pendingFolder = pendingFolders.computeIfAbsent(folder, key -> new PendingFolder());
+        pendingFolder.lastChange = System.nanoTime();
+    }
+
+    private void registerTreeQuietly(Path start, FileTime markChangedSince) {
+        try {
+            registerTree(start, markChangedSince);
+        } catch (IOException e) {
+            // The directory vanished or is unreadable: there is nothing to convert in it.
+        }
+    }
+
+    /**
+     * Watches every directory of the tree, and marks as pending the .D folders changed since the given time, if any.
+     */
+    private void registerTree(Path start, FileTime markChangedSince) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) throws IOException {
+                WatchKey key = directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                                                  StandardWatchEventKinds.ENTRY_MODIFY);
+                watchedDirectories.put(key, directory);
+
+                if (BatchConverter.isDFolder(directory)) {
+                    if (markChangedSince != null && isChangedSince(directory, markChangedSince)) {
+                        markPending(directory);
+                    }
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exception) {
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static final class PendingFolder {
+
+        private long lastChange;
+        private List<Object> state;
+    }
+}
@@ -1,45 +1,238 @@
 package fr.ifpen.allotropeconverters.gc;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import fr.ifpen.allotropeconverters.gc.chemstation.ChemStationToAllotropeMapper;
+import fr.ifpen.allotropeconverters.gc.chemstation.ConversionListener;
+import fr.ifpen.allotropeconverters.gc.chemstation.ConversionMode;
+import fr.ifpen.allotropeconverters.gc.chemstation.ConversionStage;
+import fr.ifpen.allotropeconverters.gc.chemstation.Decimation;
+import fr.ifpen.allotropeconverters.gc.chemstation.SamplePrecision;
+import fr.ifpen.allotropeconverters.gc.chemstation.StageRecording;
+import fr.ifpen.allotropeconverters.gc.schema.ChromatogramDataCube;
+import fr.ifpen.allotropeconverters.gc.schema.GasChromatographyDocument;
 import fr.ifpen.allotropeconverters.gc.schema.GasChromatographyTabularEmbedSchema;
+import fr.ifpen.allotropeconverters.gc.schema.MeasurementDocument;
 import jakarta.xml.bind.JAXBException;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Converts ChemStation .D folders to ASM JSON.<br>
+ * Converters hold no per-conversion state: a single instance can be shared by any number of threads converting
+ * concurrently.
+ */
 public class GcToAllotropeJsonConverter {
 
-    private final ZoneId defaultTimeZone;
-    private ChemStationToAllotropeMapper chemstationMapper;
+    private final ConversionRuntime runtime;
+    private final ChemStationToAllotropeMapper chemstationMapper;
+    private final ConversionListener listener;
+    private final String settings;
 
     public GcToAllotropeJsonConverter() {
-        defaultTimeZone = ZoneOffset.UTC;
-        this.createMapper();
+        this(ZoneOffset.UTC);
     }
 
     public GcToAllotropeJsonConverter(ZoneId defaultTimeZone) {
-        this.defaultTimeZone = defaultTimeZone;
-        this.createMapper();
+        this(defaultTimeZone, ConversionRuntime.getDefault());
     }
 
-    private void createMapper() {
-        chemstationMapper = new ChemStationToAllotropeMapper(defaultTimeZone);
+    public GcToAllotropeJsonConverter(ZoneId defaultTimeZone, ConversionRuntime runtime) {
+        this(defaultTimeZone, runtime, Decimation.none());
+    }
+
+    /**
+     * @param decimation reduction of the chromatogram data cubes, for consumers that do not need every point of long
+     *                   runs. Peak apexes are kept, so that the peak list still lines up with the reduced trace.
+     */
+    public GcToAllotropeJsonConverter(ZoneId defaultTimeZone, ConversionRuntime runtime, Decimation decimation) {
+        this(defaultTimeZone, runtime, decimation, ConversionListener.none());
+    }
+
+    /**
+     * @param listener receives the wall time, bytes read, points decoded and bytes written of each stage of every
+     *                 conversion: the reading of Result.xml, acq.txt and each .ch file, then the serialization. The
+     *                 same measures are recorded as Flight Recorder events, with or without a listener.
+     */
+    public GcToAllotropeJsonConverter(ZoneId defaultTimeZone, ConversionRuntime runtime, Decimation decimation,
+                                      ConversionListener listener) {
+        this(defaultTimeZone, runtime, decimation, SamplePrecision.full(), listener);
+    }
+
+    /**
+     * @param precision decimals of the points of the chromatogram data cubes: rounding off the digits beyond the
+     *                  resolution of the detector makes documents smaller and faster to write
+     */
+    public GcToAllotropeJsonConverter(ZoneId defaultTimeZone, ConversionRuntime runtime, Decimation decimation,
+                                      SamplePrecision precision, ConversionListener listener) {
+        this.runtime = runtime;
+        this.chemstationMapper = new ChemStationToAllotropeMapper(defaultTimeZone, runtime.getResultReader(), decimation,
+                                                                  precision, listener, runtime.getSignalExecutor());
+        this.listener = listener;
+        this.settings = "timeZone=" + defaultTimeZone.getId() + ";decimation=" + decimation + ";precision=" + precision;
     }
 
     public ObjectNode convertFile(String filePath) throws JAXBException, IOException {
-        GasChromatographyTabularEmbedSchema embedSchema = chemstationMapper.mapToGasChromatographySchema(filePath);
+        return convertFile(filePath, ConversionMode.FULL);
+    }
 
-        ObjectMapper objectMapper = JsonMapper.builder().addModule(new JavaTimeModule()).build();
+    /**
+     * Converts a ChemStation .D folder, leaving out the chromatogram samples in {@link ConversionMode#METADATA_ONLY}
+     * mode.
+     */
+    public ObjectNode convertFile(String filePath, ConversionMode mode) throws JAXBException, IOException {
+        GasChromatographyTabularEmbedSchema embedSchema = chemstationMapper.mapToGasChromatographySchema(filePath, mode);
+
+        StageRecording recording = StageRecording.start(ConversionStage.SERIALIZATION, filePath);
+        ObjectNode tree = runtime.toTree(embedSchema);
+        recording.complete(listener, 0, 0, 0);
+        return tree;
+    }
+
+    /**
+     * Converts a ChemStation .D folder and writes the ASM JSON document to the given stream, without building it in
+     * memory first: the chromatogram arrays are written sample by sample from the decoded signal.<br>
+     * The document is written without indentation. The stream is flushed but left open.
+     */
+    public void convertTo(Path dFolder, OutputStream out) throws JAXBException, IOException {
+        convertTo(dFolder, out, ConversionMode.FULL);
+    }
+
+    /**
+     * Streams the conversion of a ChemStation .D folder like {@link #convertTo(Path, OutputStream)}, leaving out the
+     * chromatogram samples in {@link ConversionMode#METADATA_ONLY} mode.
+     */
+    public void convertTo(Path dFolder, OutputStream out, ConversionMode mode) throws JAXBException, IOException {
+        GasChromatographyTabularEmbedSchema embedSchema =
+                chemstationMapper.mapToGasChromatographySchema(dFolder.toString(), mode);
+
+        StageRecording recording = StageRecording.start(ConversionStage.SERIALIZATION, dFolder.toString());
+        CountingOutputStream countingOut = new CountingOutputStream(out);
+        runtime.write(embedSchema, countingOut);
+        recording.complete(listener, 0, 0, countingOut.getCount());
+    }
 
-        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+    /**
+     * Converts a ChemStation .D folder to an ASM JSON document holding no chromatogram samples, and a binary sidecar
+     * holding them, which can be memory-mapped back with {@link ChromatogramSidecar}.<br>
+     * The sidecar is written next to the document, with the {@code .bin} extension in place of {@code .json}. Each
+     * chromatogram data cube references its arrays in the sidecar instead of inlining them. Existing files are only
+     * replaced once both are complete.
+     *
+     * @return the sidecar file
+     */
+    public Path convertWithSidecar(Path dFolder, Path jsonFile) throws JAXBException, IOException {
+        GasChromatographyTabularEmbedSchema embedSchema =
+                chemstationMapper.mapToGasChromatographySchema(dFolder.toString(), ConversionMode.FULL);
+
+        StageRecording recording = StageRecording.start(ConversionStage.SERIALIZATION, dFolder.toString());
+        String jsonFileName = jsonFile.getFileName().toString();
+        String sidecarFileName = (jsonFileName.endsWith(".json")
+                                  ? jsonFileName.substring(0, jsonFileName.length() - ".json".length())
+                                  : jsonFileName) + ".bin";
+        Path sidecarFile = jsonFile.resolveSibling(sidecarFileName);
+
+        // Both files are written to temporary files moved in place once complete, the sidecar first, so that a failed
+        // or interrupted conversion never leaves a truncated output behind.
+        Path directory = jsonFile.toAbsolutePath().getParent();
+        Path temporarySidecarFile = Files.createTempFile(directory, sidecarFileName, ".tmp");
+        Path temporaryJsonFile = Files.createTempFile(directory, jsonFileName, ".tmp");
+        try {
+            try (SidecarWriter sidecarWriter = new SidecarWriter(temporarySidecarFile, sidecarFileName)) {
+                for (GasChromatographyDocument gasChromatographyDocument :
+                        embedSchema.getGasChromatographyAggregateDocument().getGasChromatographyDocument()) {
+                    for (MeasurementDocument measurementDocument :
+                            gasChromatographyDocument.getMeasurementAggregateDocument().getMeasurementDocument()) {
+                        ChromatogramDataCube chromatogramDataCube = measurementDocument.getChromatogramDataCube();
+                        chromatogramDataCube.setAdditionalProperty(ChromatogramSidecar.REFERENCE_PROPERTY,
+                                                                   sidecarWriter.write(chromatogramDataCube.getData()));
+                        chromatogramDataCube.setData(null);
+                    }
+                }
+            }
+
+            try (OutputStream out = Files.newOutputStream(temporaryJsonFile)) {
+                runtime.write(embedSchema, out);
+            }
+            Files.move(temporarySidecarFile, sidecarFile, StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+            Files.move(temporaryJsonFile, jsonFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporarySidecarFile);
+            Files.deleteIfExists(temporaryJsonFile);
+        }
+        recording.complete(listener, 0, 0, Files.size(jsonFile) + Files.size(sidecarFile));
+        return sidecarFile;
+    }
+
+    /**
+     * Converts the .D runs of a ChemStation sequence folder to a single ASM JSON document, written to the given stream:
+     * one gas chromatography document per run, in the order of the run folder names, and the device system document
+     * they share.<br>
+     * Runs are converted concurrently, and each is written and dropped as soon as those before it are written, so the
+     * whole sequence is never held in memory. The document is written without indentation. The stream is flushed but
+     * left open; if a run fails to convert, the document written so far is left incomplete.
+     *
+     * @throws IOException if the folder holds no .D run, if a run fails to convert, or if the runs come from different
+     *                     instruments
+     */
+    public void convertSequence(Path sequenceFolder, OutputStream out) throws JAXBException, IOException {
+        convertSequence(sequenceFolder, out, ConversionMode.FULL);
+    }
+
+    /**
+     * Streams the conversion of a ChemStation sequence folder like {@link #convertSequence(Path, OutputStream)},
+     * leaving out the chromatogram samples in {@link ConversionMode#METADATA_ONLY} mode.
+     */
+    public void convertSequence(Path sequenceFolder, OutputStream out, ConversionMode mode)
+            throws JAXBException, IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            convertSequence(sequenceFolder, out, mode, executor);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Streams the conversion of a ChemStation sequence folder like {@link #convertSequence(Path, OutputStream,
+     * ConversionMode)}, mapping the runs with the given executor instead of a pool of one thread per processor, for
+     * instance {@code Executors.newVirtualThreadPerTaskExecutor()} on Java 21 and later. The executor is left running.
+     */
+    public void convertSequence(Path sequenceFolder, OutputStream out, ConversionMode mode, Executor executor)
+            throws JAXBException, IOException {
+        List<Path> runs = BatchConverter.findDFolders(sequenceFolder);
+        if (runs.isEmpty()) {
+            throw new IOException("No .D folder found in " + sequenceFolder);
+        }
+        runs.sort(null);
+
+        new SequenceConverter(chemstationMapper, runtime, mode, executor).convert(runs, out);
+    }
+
+    /**
+     * Describes the settings changing the documents, which key them in a {@link ConversionCache}.
+     */
+    String getSettings() {
+        return settings;
+    }
 
-        return objectMapper.valueToTree(embedSchema);
+    /**
+     * Converts every ChemStation .D folder found under the root directory, concurrently, into
+     * {@code outDir/<relative path>/<folder name>.json}.<br>
+     * Each document is streamed to disk. A folder that fails to convert is reported in the result and does not stop the
+     * batch, as is a directory of the tree that cannot be read.
+     */
+    public BatchReport convertAll(Path root, Path outDir, BatchOptions options) throws IOException, InterruptedException {
+        return new BatchConverter(this, options).convertAll(root, outDir);
     }
 }
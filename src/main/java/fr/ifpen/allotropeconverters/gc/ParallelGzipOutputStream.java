@@ -0,0 +1,206 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip output stream compressing blocks of its input concurrently, in the manner of pigz.<br>
+ * The input is cut into blocks, each deflated as it fills by a task of the executor while the writer carries on. Each
+ * block is primed with the last 32 KiB of the previous one, so that the ratio is close to that of a single deflater,
+ * and ends on a byte boundary, so that the compressed blocks are simply written one after the other, in order. The
+ * output is a single gzip member that any gzip reader decompresses.<br>
+ * At most {@value #MAX_BLOCKS_IN_FLIGHT} blocks per stream are compressed or waiting to be written at any time, which
+ * bounds the memory of each stream whatever the number of processors, see {@link #MAX_BUFFERED_BYTES}: batches run one
+ * stream per worker, which already keeps every processor busy. Like other streams, instances are not thread-safe.
+ */
+public final class ParallelGzipOutputStream extends OutputStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+    public static final int MAX_BLOCKS_IN_FLIGHT = 4;
+    /**
+     * Heap a stream with blocks of the default size holds at most: each block in flight with its compressed copy, the
+     * block being filled and the previous one, kept as the next dictionary.
+     */
+    public static final long MAX_BUFFERED_BYTES = (2L * MAX_BLOCKS_IN_FLIGHT + 2) * DEFAULT_BLOCK_SIZE;
+
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final OutputStream out;
+    private final int level;
+    private final int blockSize;
+    private final Executor executor;
+    private final Queue<CompletableFuture<byte[]>> blocksInFlight = new ArrayDeque<>();
+    private final CRC32 crc = new CRC32();
+    private byte[] block;
+    private int blockLength;
+    private byte[] previousBlock;
+    private long inputSize;
+    private boolean finished;
+
+    /**
+     * Compresses at the default level, in blocks of {@value #DEFAULT_BLOCK_SIZE} bytes, on the common fork-join pool.
+     */
+    public ParallelGzipOutputStream(OutputStream out) throws IOException {
+        this(out, Deflater.DEFAULT_COMPRESSION, DEFAULT_BLOCK_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param level     deflate level, from {@link Deflater#BEST_SPEED} to {@link Deflater#BEST_COMPRESSION}
+     * @param blockSize number of input bytes compressed by each task
+     */
+    public ParallelGzipOutputStream(OutputStream out, int level, int blockSize, Executor executor) throws IOException {
+        if (blockSize < DICTIONARY_SIZE) {
+            throw new IllegalArgumentException("Blocks must hold at least " + DICTIONARY_SIZE + " bytes");
+        }
+        this.out = out;
+        this.level = level;
+        this.blockSize = blockSize;
+        this.executor = executor;
+        this.block = new byte[blockSize];
+        out.write(HEADER);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        block[blockLength++] = (byte) b;
+        if (blockLength == blockSize) {
+            submitBlock(false);
+        }
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        while (length > 0) {
+            int copied = Math.min(length, blockSize - blockLength);
+            System.arraycopy(bytes, offset, block, blockLength, copied);
+            blockLength += copied;
+            offset += copied;
+            length -= copied;
+            if (blockLength == blockSize) {
+                submitBlock(false);
+            }
+        }
+    }
+
+    /**
+     * Writes the compressed blocks completed so far, in order, without waiting for the others. Buffered input is only
+     * compressed once its block is full or the stream is finished.
+     */
+    @Override
+    public void flush() throws IOException {
+        while (!blocksInFlight.isEmpty() && blocksInFlight.peek().isDone()) {
+            writeOldestBlock();
+        }
+        out.flush();
+    }
+
+    /**
+     * Compresses the remaining input and writes the gzip trailer, without closing the underlying stream.
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        submitBlock(true);
+        while (!blocksInFlight.isEmpty()) {
+            writeOldestBlock();
+        }
+
+        byte[] trailer = new byte[8];
+        putIntLittleEndian(trailer, 0, (int) crc.getValue());
+        putIntLittleEndian(trailer, 4, (int) inputSize); // The size modulo 2^32
+        out.write(trailer);
+        finished = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    private void submitBlock(boolean isLast) throws IOException {
+        byte[] input = blockLength == blockSize ? block : Arrays.copyOf(block, blockLength);
+        byte[] dictionary = previousBlock;
+        crc.update(input);
+        inputSize += input.length;
+
+        while (blocksInFlight.size() >= MAX_BLOCKS_IN_FLIGHT) {
+            writeOldestBlock();
+        }
+        blocksInFlight.add(CompletableFuture.supplyAsync(() -> compress(input, dictionary, isLast), executor));
+
+        // The submitted block is read by its task, and by the next one as its dictionary: it must not be reused.
+        previousBlock = input;
+        block = new byte[blockSize];
+        blockLength = 0;
+    }
+
+    private byte[] compress(byte[] input, byte[] dictionary, boolean isLast) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary, dictionary.length - DICTIONARY_SIZE, DICTIONARY_SIZE);
+            }
+            deflater.setInput(input);
+            if (isLast) {
+                deflater.finish();
+            }
+
+            // Deflate rarely expands data by more than a few bytes per 16 KiB.
+            byte[] output = new byte[input.length + input.length / 64 + 64];
+            int length = 0;
+            while (true) {
+                int flush = isLast ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH;
+                length += deflater.deflate(output, length, output.length - length, flush);
+                // A flush is complete once it leaves room in the output, a finish once the deflater says so.
+                if (isLast ? deflater.finished() : length < output.length) {
+                    return Arrays.copyOf(output, length);
+                }
+                if (length == output.length) {
+                    output = Arrays.copyOf(output, 2 * output.length);
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeOldestBlock() throws IOException {
+        byte[] compressed;
+        try {
+            compressed = blocksInFlight.remove().join();
+        } catch (CompletionException e) {
+            throw new IOException("Block compression failed", e.getCause());
+        }
+        out.write(compressed);
+    }
+
+    private void ensureOpen() throws IOException {
+        if (finished) {
+            throw new IOException("Stream finished");
+        }
+    }
+
+    private static void putIntLittleEndian(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >> 8);
+        bytes[offset + 2] = (byte) (value >> 16);
+        bytes[offset + 3] = (byte) (value >> 24);
+    }
+}
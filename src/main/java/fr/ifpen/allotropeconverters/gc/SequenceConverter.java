@@ -0,0 +1,176 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import fr.ifpen.allotropeconverters.gc.chemstation.ChemStationToAllotropeMapper;
+import fr.ifpen.allotropeconverters.gc.chemstation.ConversionMode;
+import fr.ifpen.allotropeconverters.gc.schema.ChromatographyColumnDocument;
+import fr.ifpen.allotropeconverters.gc.schema.DeviceSystemDocument;
+import fr.ifpen.allotropeconverters.gc.schema.GasChromatographyAggregateDocument;
+import fr.ifpen.allotropeconverters.gc.schema.GasChromatographyDocument;
+import jakarta.xml.bind.JAXBException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Converts the .D runs of a ChemStation sequence into a single ASM document, with one gas chromatography document per
+ * injection, in the order of the run folder names.<br>
+ * Runs are mapped concurrently by the given executor, and each document is written as soon as those before it are, then
+ * dropped: at most two runs per processor are held in memory, whatever the length of the sequence. The device system
+ * document, written last, is shared by every run, as are identical column documents.<br>
+ * If a run fails, those not started yet are skipped and those being mapped are waited for before the failure is thrown.
+ */
+final class SequenceConverter {
+
+    private static final String AGGREGATE_DOCUMENT = "gas chromatography aggregate document";
+    private static final String GAS_CHROMATOGRAPHY_DOCUMENT = "gas chromatography document";
+    private static final String DEVICE_SYSTEM_DOCUMENT = "device system document";
+
+    private final ChemStationToAllotropeMapper chemstationMapper;
+    private final ConversionRuntime runtime;
+    private final ConversionMode mode;
+    private final Executor executor;
+    private final int maxRunsInFlight = 2 * Runtime.getRuntime().availableProcessors();
+    private final List<ChromatographyColumnDocument> columnDocuments = new ArrayList<>();
+    private DeviceSystemDocument deviceSystemDocument;
+
+    SequenceConverter(ChemStationToAllotropeMapper chemstationMapper, ConversionRuntime runtime, ConversionMode mode,
+                      Executor executor) {
+        this.chemstationMapper = chemstationMapper;
+        this.runtime = runtime;
+        this.mode = mode;
+        this.executor = executor;
+    }
+
+    /**
+     * Writes the document of the runs to the stream, flushing but not closing it.
+     *
+     * @throws IOException if a run fails to convert, or if the runs come from different instruments
+     */
+    void convert(List<Path> runs, OutputStream out) throws JAXBException, IOException {
+        Queue<CompletableFuture<GasChromatographyAggregateDocument>> runsInFlight = new ArrayDeque<>();
+        AtomicBoolean failed = new AtomicBoolean();
+        Phaser runsMapping = new Phaser(1); // The calling thread, and each run while it is mapped
+        // Not closed on failure, which would end the document and hide its truncation.
+        JsonGenerator generator = runtime.createGenerator(out);
+        try {
+            generator.writeStartObject();
+            generator.writeObjectFieldStart(AGGREGATE_DOCUMENT);
+            generator.writeArrayFieldStart(GAS_CHROMATOGRAPHY_DOCUMENT);
+
+            for (Path run : runs) {
+                while (runsInFlight.size() >= maxRunsInFlight) {
+                    writeOldestRun(runsInFlight, generator);
+                }
+                runsMapping.register();
+                try {
+                    runsInFlight.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            if (failed.get()) {
+                                throw new CancellationException();
+                            }
+                            return mapRun(run);
+                        } finally {
+                            runsMapping.arriveAndDeregister();
+                        }
+                    }, executor));
+                } catch (RejectedExecutionException e) {
+                    runsMapping.arriveAndDeregister();
+                    throw e;
+                }
+            }
+            while (!runsInFlight.isEmpty()) {
+                writeOldestRun(runsInFlight, generator);
+            }
+
+            generator.writeEndArray();
+            if (deviceSystemDocument != null) {
+                generator.writeFieldName(DEVICE_SYSTEM_DOCUMENT);
+                runtime.writeValue(generator, deviceSystemDocument);
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+            generator.close();
+        } catch (JAXBException | IOException | RuntimeException | Error e) {
+            failed.set(true);
+            runsMapping.arriveAndAwaitAdvance();
+            throw e;
+        }
+    }
+
+    private GasChromatographyAggregateDocument mapRun(Path run) {
+        try {
+            return chemstationMapper.mapToGasChromatographySchema(run.toString(), mode)
+                                    .getGasChromatographyAggregateDocument();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (JAXBException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private void writeOldestRun(Queue<CompletableFuture<GasChromatographyAggregateDocument>> runsInFlight,
+                                JsonGenerator generator) throws JAXBException, IOException {
+        GasChromatographyAggregateDocument aggregateDocument;
+        try {
+            aggregateDocument = runsInFlight.remove().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            if (e.getCause() instanceof JAXBException jaxbException) {
+                throw jaxbException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+
+        shareDeviceSystemDocument(aggregateDocument.getDeviceSystemDocument());
+        for (GasChromatographyDocument gasChromatographyDocument : aggregateDocument.getGasChromatographyDocument()) {
+            gasChromatographyDocument.setChromatographyColumnDocument(
+                    shareColumnDocument(gasChromatographyDocument.getChromatographyColumnDocument()));
+            runtime.writeValue(generator, gasChromatographyDocument);
+        }
+    }
+
+    private void shareDeviceSystemDocument(DeviceSystemDocument runDeviceSystemDocument) throws IOException {
+        if (deviceSystemDocument == null) {
+            deviceSystemDocument = runDeviceSystemDocument;
+        } else if (!deviceSystemDocument.equals(runDeviceSystemDocument)) {
+            throw new IOException("Runs of the sequence come from different instruments: "
+                                  + deviceSystemDocument.getAssetManagementIdentifier() + " and "
+                                  + runDeviceSystemDocument.getAssetManagementIdentifier());
+        }
+    }
+
+    /**
+     * Returns the column document of a previous run equal to this one, if any, so that a single copy is kept.
+     */
+    private ChromatographyColumnDocument shareColumnDocument(ChromatographyColumnDocument columnDocument) {
+        for (ChromatographyColumnDocument sharedColumnDocument : columnDocuments) {
+            if (sharedColumnDocument.equals(columnDocument)) {
+                return sharedColumnDocument;
+            }
+        }
+        columnDocuments.add(columnDocument);
+        return columnDocument;
+    }
+}
@@ -0,0 +1,118 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import fr.ifpen.allotropeconverters.allotropeutils.AllotropeData;
+import fr.ifpen.allotropeconverters.gc.chemstation.chfile.DoubleListView;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+
+/**
+ * Writes chromatogram arrays to a sidecar file in the format read by {@link ChromatogramSidecar}, and describes them
+ * with the reference replacing the data of the chromatogram data cube.
+ */
+final class SidecarWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final String relativePath;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32C crc = new CRC32C();
+
+    /**
+     * @param relativePath path of the sidecar relative to the document referencing it
+     */
+    SidecarWriter(Path file, String relativePath) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                        StandardOpenOption.TRUNCATE_EXISTING);
+        this.relativePath = relativePath;
+
+        ByteBuffer header = ByteBuffer.allocate(ChromatogramSidecar.HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(ChromatogramSidecar.MAGIC).putInt(ChromatogramSidecar.VERSION);
+        writeFully(header.clear(), 0);
+    }
+
+    /**
+     * Appends the arrays of the data cube, and returns the reference to them.
+     */
+    Map<String, Object> write(AllotropeData data) throws IOException {
+        Map<String, Object> reference = new LinkedHashMap<>();
+        reference.put("path", relativePath);
+        reference.put("dimensions", writeArrays(data.getDimensions()));
+        reference.put("measures", writeArrays(data.getMeasures()));
+        return reference;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private List<Map<String, Object>> writeArrays(List<List<Double>> arrays) throws IOException {
+        List<Map<String, Object>> references = new ArrayList<>();
+        for (List<Double> array : arrays) {
+            references.add(writeArray(array));
+        }
+        return references;
+    }
+
+    private Map<String, Object> writeArray(List<Double> values) throws IOException {
+        long offset = channel.size();
+        long dataPosition = offset + ChromatogramSidecar.ARRAY_HEADER_LENGTH;
+        long position = dataPosition;
+        crc.reset();
+
+        // Views are read as primitives, without boxing the values.
+        DoubleListView view = values instanceof DoubleListView ? (DoubleListView) values : null;
+        int size = values.size();
+        for (int i = 0; i < size; i++) {
+            if (!buffer.hasRemaining()) {
+                position += flush(position);
+            }
+            buffer.putDouble(view != null ? view.getDouble(i) : values.get(i));
+        }
+        flush(position);
+
+        // The header is written last, once the checksum is known.
+        int checksum = (int) crc.getValue();
+        ByteBuffer header = ByteBuffer.allocate(ChromatogramSidecar.ARRAY_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(ChromatogramSidecar.FLOAT64).position(4);
+        header.putInt(checksum).putLong(size);
+        writeFully(header.clear(), offset);
+
+        Map<String, Object> reference = new LinkedHashMap<>();
+        reference.put("offset", offset);
+        reference.put("length", size);
+        reference.put("dtype", ChromatogramSidecar.FLOAT64_NAME);
+        reference.put("crc32c", Integer.toUnsignedLong(checksum));
+        return reference;
+    }
+
+    /**
+     * Writes the buffered values at the given position, and returns the number of bytes written.
+     */
+    private int flush(long position) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        int length = buffer.remaining();
+        writeFully(buffer, position);
+        buffer.clear();
+        return length;
+    }
+
+    private void writeFully(ByteBuffer data, long position) throws IOException {
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package fr.ifpen.allotropeconverters.gc.chemstation;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_16;
+
+/**
+ * The acq.txt report of a .D folder, indexed in a single pass over its text.<br>
+ * The report is cut into sections, the parts framed by lines of {@code =} signs such as Column(s), named after the
+ * framed line; the lines before the first frame form a section with an empty title. Sections are cut into blocks, runs
+ * of non-blank lines named after their first line, such as the Oven or Front SS Inlet He settings of a method. The
+ * {@code Key : value} entries of every line are indexed by block and by section, a line holding one or several of them:
+ * <pre>
+ * =====================================================================
+ *                               Column(s)
+ * =====================================================================
+ *
+ * Column Description :  HP-PONA
+ * Model#             :  19091S-001        Manufacturer: Agilent
+ * </pre>
+ * Instances are immutable: a report read once serves every mapping of a conversion.
+ */
+public final class AcquisitionMethodReport {
+
+    private static final String FILE_NAME = "acq.txt";
+    private static final int MIN_FRAME_LENGTH = 10;
+
+    private final List<Section> sections;
+
+    private AcquisitionMethodReport(List<Section> sections) {
+        this.sections = sections;
+    }
+
+    public static AcquisitionMethodReport read(String folderPath) throws IOException {
+        // Malformed input is replaced, as a reader would.
+        return parse(new String(Files.readAllBytes(Path.of(folderPath, FILE_NAME)), UTF_16));
+    }
+
+    static AcquisitionMethodReport parse(String text) {
+        List<String> lines = List.of(text.split("\r\n|\r|\n", -1));
+        List<Section> sections = new ArrayList<>();
+
+        Section section = new Section("");
+        Block block = null;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i);
+            if (i + 2 < lines.size() && isFrame(line) && isFrame(lines.get(i + 2)) && !isFrame(lines.get(i + 1))) {
+                sections.add(section.seal());
+                section = new Section(lines.get(i + 1).trim());
+                block = null;
+                i += 2;
+                continue;
+            }
+
+            section.lines.add(line);
+            if (line.isBlank()) {
+                block = null;
+            } else if (block == null) {
+                block = new Block(line.trim());
+                section.blocks.add(block);
+            } else {
+                block.lines.add(line);
+                indexEntries(line, block.entries);
+            }
+            indexEntries(line, section.entries);
+        }
+        sections.add(section.seal());
+
+        return new AcquisitionMethodReport(Collections.unmodifiableList(sections));
+    }
+
+    public List<Section> getSections() {
+        return sections;
+    }
+
+    /**
+     * Returns the first section with the given title, ignoring case, or null if there is none.
+     */
+    public Section getSection(String title) {
+        for (Section section : sections) {
+            if (section.title.equalsIgnoreCase(title)) {
+                return section;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isFrame(String line) {
+        String trimmed = line.trim();
+        if (trimmed.length() < MIN_FRAME_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < trimmed.length(); i++) {
+            if (trimmed.charAt(i) != '=') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Indexes the {@code Key : value} entries of the line, keeping the first value of each key. A colon starts another
+     * entry when its key follows a value and at least two spaces: other colons, as in {@code C:\Data}, are part of the
+     * value.
+     */
+    private static void indexEntries(String line, Map<String, String> entries) {
+        int colon = line.indexOf(':');
+        if (colon < 0) {
+            return;
+        }
+        String key = line.substring(0, colon).trim();
+        int valueStart = colon + 1;
+
+        while ((colon = line.indexOf(':', colon + 1)) >= 0) {
+            int keyStart = findKeyStart(line, valueStart, colon);
+            if (keyStart >= 0) {
+                entries.putIfAbsent(key, line.substring(valueStart, keyStart).trim());
+                key = line.substring(keyStart, colon).trim();
+                valueStart = colon + 1;
+            }
+        }
+        entries.putIfAbsent(key, line.substring(valueStart).trim());
+    }
+
+    /**
+     * Returns the start of the key ending at the colon, if it follows a value and two spaces, or else -1.
+     */
+    private static int findKeyStart(String line, int valueStart, int colon) {
+        int keyEnd = colon;
+        while (keyEnd > valueStart && line.charAt(keyEnd - 1) == ' ') {
+            keyEnd--;
+        }
+        int keyStart = keyEnd;
+        while (keyStart - 2 >= valueStart && !(line.charAt(keyStart - 1) == ' ' && line.charAt(keyStart - 2) == ' ')) {
+            keyStart--;
+        }
+        if (keyStart - 2 < valueStart || keyStart == keyEnd) {
+            return -1;
+        }
+        for (int i = valueStart; i < keyStart; i++) {
+            if (line.charAt(i) != ' ') {
+                return keyStart;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * A part of the report framed by lines of {@code =} signs.
+     */
+    public static final class Section {
+
+        private final String title;
+        private List<String> lines = new ArrayList<>();
+        private List<Block> blocks = new ArrayList<>();
+        private Map<String, String> entries = new LinkedHashMap<>();
+
+        private Section(String title) {
+            this.title = title;
+        }
+
+        private Section seal() {
+            lines = Collections.unmodifiableList(lines);
+            blocks = Collections.unmodifiableList(blocks);
+            entries = Collections.unmodifiableMap(entries);
+            return this;
+        }
+
+        /**
+         * Returns the framed title, such as "Column(s)", or an empty string for the lines before the first frame.
+         */
+        public String getTitle() {
+            return title;
+        }
+
+        public List<String> getLines() {
+            return lines;
+        }
+
+        public List<Block> getBlocks() {
+            return blocks;
+        }
+
+        /**
+         * Returns the first block with the given heading, ignoring case, or null if there is none.
+         */
+        public Block getBlock(String heading) {
+            for (Block block : blocks) {
+                if (block.heading.equalsIgnoreCase(heading)) {
+                    return block;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Returns the trimmed value of the first entry of the section with the given key, or null if there is none.
+         */
+        public String getEntry(String key) {
+            return entries.get(key);
+        }
+
+        public Map<String, String> getEntries() {
+            return entries;
+        }
+    }
+
+    /**
+     * A run of non-blank lines of a section, whose first line is the heading.
+     */
+    public static final class Block {
+
+        private final String heading;
+        private final List<String> lines = new ArrayList<>();
+        private final Map<String, String> entries = new LinkedHashMap<>();
+
+        private Block(String heading) {
+            this.heading = heading;
+        }
+
+        public String getHeading() {
+            return heading;
+        }
+
+        /**
+         * Returns the lines following the heading.
+         */
+        public List<String> getLines() {
+            return Collections.unmodifiableList(lines);
+        }
+
+        /**
+         * Returns the trimmed value of the first entry of the lines following the heading with the given key, or null
+         * if there is none.
+         */
+        public String getEntry(String key) {
+            return entries.get(key);
+        }
+
+        public Map<String, String> getEntries() {
+            return Collections.unmodifiableMap(entries);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package fr.ifpen.allotropeconverters.gc.chemstation;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Unmarshaller;
+import jakarta.xml.bind.helpers.DefaultValidationEventHandler;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Reads the Result.xml file of a .D folder.<br>
+ * Files are read by a streaming parser pulling only the elements the mappers use, and unmarshalled by JAXB if it fails,
+ * which also reports the errors of invalid files. The JAXB context is built once, on first use, and each thread gets
+ * its own unmarshaller, as unmarshallers are not thread-safe. Instances are thread-safe and meant to be shared.
+ */
+public final class ChemStationResultReader {
+
+    private static final String RESULT_FILE_NAME = "Result.xml";
+
+    private final ResultXmlStreamReader streamReader = new ResultXmlStreamReader();
+    private final ThreadLocal<Unmarshaller> unmarshallers = new ThreadLocal<>();
+    private volatile JAXBContext jaxbContext;
+
+    /**
+     * Reads the result of the folder. Untyped elements, such as the operator or the sample name, are strings when
+     * streamed, and DOM elements when unmarshalled.
+     */
+    public ChemStationResult read(String folderPath) throws JAXBException {
+        File file = new File(folderPath, RESULT_FILE_NAME);
+
+        try {
+            return streamReader.read(file.toPath());
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            return readWithJaxb(file);
+        }
+    }
+
+    /**
+     * Reads the result of the folder, handing the peaks of each results group to the sink as they are read, in order,
+     * instead of keeping them in their groups.
+     */
+    ChemStationResult read(String folderPath, PeakSink peaks) throws JAXBException {
+        File file = new File(folderPath, RESULT_FILE_NAME);
+
+        try {
+            return streamReader.read(file.toPath(), peaks);
+        } catch (IOException | XMLStreamException | RuntimeException e) {
+            peaks.clear();
+            ChemStationResult result = readWithJaxb(file);
+            if (result.results != null) {
+                List<ResultsType.ResultsGroup> resultsGroups = result.results.getResultsGroup();
+                for (int i = 0; i < resultsGroups.size(); i++) {
+                    for (CompoundType compound : resultsGroups.get(i).getPeak()) {
+                        peaks.accept(i, compound);
+                    }
+                    resultsGroups.get(i).getPeak().clear();
+                }
+            }
+            return result;
+        }
+    }
+
+    ChemStationResult readWithJaxb(File file) throws JAXBException {
+        return (ChemStationResult) getUnmarshaller().unmarshal(file);
+    }
+
+    /**
+     * Builds the JAXB context, and the unmarshaller of the calling thread, ahead of the first read.
+     */
+    public void warmUp() throws JAXBException {
+        getUnmarshaller();
+    }
+
+    private Unmarshaller getUnmarshaller() throws JAXBException {
+        Unmarshaller unmarshaller = unmarshallers.get();
+        if (unmarshaller == null) {
+            unmarshaller = getJaxbContext().createUnmarshaller();
+            unmarshaller.setEventHandler(new DefaultValidationEventHandler());
+            unmarshallers.set(unmarshaller);
+        }
+        return unmarshaller;
+    }
+
+    private JAXBContext getJaxbContext() throws JAXBException {
+        JAXBContext context = jaxbContext;
+        if (context == null) {
+            synchronized (this) {
+                context = jaxbContext;
+                if (context == null) {
+                    context = JAXBContext.newInstance(ChemStationResult.class);
+                    jaxbContext = context;
+                }
+            }
+        }
+        return context;
+    }
+
+    /**
+     * Receives the peaks of Result.xml as they are read.
+     */
+    interface PeakSink {
+
+        void accept(int resultsGroupIndex, CompoundType compound);
+
+        /**
+         * Discards the peaks received so far, as the file is read again from the start.
+         */
+        void clear();
+    }
+}
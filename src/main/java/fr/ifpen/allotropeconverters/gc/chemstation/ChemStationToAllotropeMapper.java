@@ -1,5 +1,6 @@
 package fr.ifpen.allotropeconverters.gc.chemstation;
 
+import fr.ifpen.allotropeconverters.gc.schema.ChromatogramDataCube;
 import fr.ifpen.allotropeconverters.gc.schema.ChromatographyColumnDocument;
 import fr.ifpen.allotropeconverters.gc.schema.DetectorControlAggregateDocument;
 import fr.ifpen.allotropeconverters.gc.schema.DetectorControlDocument;
@@ -14,94 +15,167 @@ import fr.ifpen.allotropeconverters.gc.schema.MeasurementDocument;
 import fr.ifpen.allotropeconverters.gc.schema.Peak;
 import fr.ifpen.allotropeconverters.gc.schema.PeakList;
 import fr.ifpen.allotropeconverters.gc.schema.SampleDocument;
-import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBException;
-import jakarta.xml.bind.Unmarshaller;
-import org.w3c.dom.Element;
+import org.w3c.dom.Node;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 public class ChemStationToAllotropeMapper {
 
+    private static final DateTimeFormatter INJECTION_TIME_FORMATTER = DateTimeFormatter.ofPattern("dd-MMM-yy, HH:mm:ss",
+                                                                                                   Locale.US);
+
+    private final ChemStationResultReader resultReader;
     private final PeakMapper peakMapper;
     private final ColumnInformationMapper columnInformationMapper;
     private final ChromatogramDataCubeMapper chromatogramDataCubeMapper;
     private final ZoneId timeZone;
+    private final ConversionListener listener;
 
     public ChemStationToAllotropeMapper(ZoneId timeZone) {
+        this(timeZone, new ChemStationResultReader());
+    }
+
+    public ChemStationToAllotropeMapper(ZoneId timeZone, ChemStationResultReader resultReader) {
+        this(timeZone, resultReader, Decimation.none());
+    }
+
+    /**
+     * @param decimation reduction applied to the chromatogram data cubes, which keeps the apexes of the listed peaks
+     */
+    public ChemStationToAllotropeMapper(ZoneId timeZone, ChemStationResultReader resultReader, Decimation decimation) {
+        this(timeZone, resultReader, decimation, SamplePrecision.full(), ConversionListener.none());
+    }
+
+    /**
+     * @param precision decimals of the points of the chromatogram data cubes
+     * @param listener  receives the metrics of the reading of Result.xml, acq.txt and each .ch file
+     */
+    public ChemStationToAllotropeMapper(ZoneId timeZone, ChemStationResultReader resultReader, Decimation decimation,
+                                        SamplePrecision precision, ConversionListener listener) {
+        this(timeZone, resultReader, decimation, precision, listener, ChromatogramDataCubeMapper.SIGNAL_EXECUTOR);
+    }
+
+    /**
+     * @param signalExecutor reads the signals of multichannel runs but the first, which blocks on files; it must not
+     *                       run them on threads waiting for conversions, such as those of the common pool
+     */
+    public ChemStationToAllotropeMapper(ZoneId timeZone, ChemStationResultReader resultReader, Decimation decimation,
+                                        SamplePrecision precision, ConversionListener listener, Executor signalExecutor) {
         this.timeZone = timeZone;
+        this.resultReader = resultReader;
+        this.listener = listener;
         this.peakMapper = new PeakMapper();
         this.columnInformationMapper = new ColumnInformationMapper();
-        this.chromatogramDataCubeMapper = new ChromatogramDataCubeMapper();
+        this.chromatogramDataCubeMapper = new ChromatogramDataCubeMapper(decimation, precision, listener,
+                                                                         signalExecutor);
     }
 
     public GasChromatographyTabularEmbedSchema mapToGasChromatographySchema(String folderPath) throws JAXBException, IOException {
-        ChemStationResult chemStationResult = parseXmlResult(folderPath);
+        return mapToGasChromatographySchema(folderPath, ConversionMode.FULL);
+    }
+
+    public GasChromatographyTabularEmbedSchema mapToGasChromatographySchema(String folderPath, ConversionMode mode)
+            throws JAXBException, IOException {
+        StageRecording resultRecording = StageRecording.start(ConversionStage.RESULT_XML, folderPath);
+        // Peaks are mapped as they are read, and never all held as parsed.
+        MappedPeaks mappedPeaks = new MappedPeaks(peakMapper);
+        ChemStationResult chemStationResult = resultReader.read(folderPath, mappedPeaks);
+        resultRecording.complete(listener, new File(folderPath, "Result.xml").length(), 0, 0);
 
         GasChromatographyTabularEmbedSchema schema = new GasChromatographyTabularEmbedSchema();
         GasChromatographyAggregateDocument document = new GasChromatographyAggregateDocument();
 
         DeviceSystemDocument deviceSystemDocument = new DeviceSystemDocument();
-        deviceSystemDocument.setAssetManagementIdentifier(((Element) chemStationResult.acquisition.instrumentName).getTextContent());
+        deviceSystemDocument.setAssetManagementIdentifier(getText(chemStationResult.acquisition.instrumentName));
 
         GasChromatographyDocument gasChromatographyDocument = new GasChromatographyDocument();
-        gasChromatographyDocument.setAnalyst(((Element) chemStationResult.sampleInformation.operator).getTextContent());
-        gasChromatographyDocument.setSubmitter(((Element) chemStationResult.sampleInformation.operator).getTextContent());
-        gasChromatographyDocument.setDeviceMethodIdentifier(((Element) chemStationResult.sampleInformation.method).getTextContent());
+        gasChromatographyDocument.setAnalyst(getText(chemStationResult.sampleInformation.operator));
+        gasChromatographyDocument.setSubmitter(getText(chemStationResult.sampleInformation.operator));
+        gasChromatographyDocument.setDeviceMethodIdentifier(getText(chemStationResult.sampleInformation.method));
 
-        ChromatographyColumnDocument chromatographyColumnDocument = columnInformationMapper.readColumnDocumentFromFile(folderPath);
-        gasChromatographyDocument.setChromatographyColumnDocument(chromatographyColumnDocument);
+        StageRecording acquisitionRecording = StageRecording.start(ConversionStage.ACQUISITION_METHOD, folderPath);
+        AcquisitionMethodReport acquisitionMethodReport = AcquisitionMethodReport.read(folderPath);
+        gasChromatographyDocument.setChromatographyColumnDocument(
+                columnInformationMapper.mapColumnDocument(acquisitionMethodReport));
+        acquisitionRecording.complete(listener, new File(folderPath, "acq.txt").length(), 0, 0);
 
+        List<ChemStationSignal> signals = findSignals(folderPath, chemStationResult);
+
+        List<DetectorControlDocument> detectorControlDocuments = new ArrayList<>();
+        for (ChemStationSignal signal : signals) {
+            DetectorControlDocument detectorControlDocument = new DetectorControlDocument();
+            detectorControlDocument.setDetectionType(getDetectorType(signal.detector));
+            detectorControlDocuments.add(detectorControlDocument);
+        }
         DetectorControlAggregateDocument detectorControlAggregateDocument = new DetectorControlAggregateDocument();
-        DetectorControlDocument detectorControlDocument = new DetectorControlDocument();
-        detectorControlDocument.setDetectionType(
-                getDetectorType(((Element) chemStationResult.chromatograms.signal.get(0).detector).getTextContent()));
-        detectorControlAggregateDocument.setDetectorControlDocument(List.of(detectorControlDocument));
+        detectorControlAggregateDocument.setDetectorControlDocument(detectorControlDocuments);
         gasChromatographyDocument.setDetectorControlAggregateDocument(detectorControlAggregateDocument);
 
         SampleDocument sampleDocument = new SampleDocument();
-        sampleDocument.setSampleIdentifier(((Element) chemStationResult.sampleInformation.sampleName).getTextContent());
-        sampleDocument.setDescription(((Element) chemStationResult.sampleInformation.sampleInfo).getTextContent());
-        sampleDocument.setWrittenName(((Element) chemStationResult.sampleInformation.sampleName).getTextContent());
+        sampleDocument.setSampleIdentifier(getText(chemStationResult.sampleInformation.sampleName));
+        sampleDocument.setDescription(getText(chemStationResult.sampleInformation.sampleInfo));
+        sampleDocument.setWrittenName(getText(chemStationResult.sampleInformation.sampleName));
         gasChromatographyDocument.setSampleDocument(sampleDocument);
 
         InjectionDocument injectionDocument = new InjectionDocument();
-        String injectionTimeString = ((Element) chemStationResult.sampleInformation.injectionDateTime).getTextContent();
+        String injectionTimeString = getText(chemStationResult.sampleInformation.injectionDateTime);
         injectionDocument.setInjectionTime(
-                LocalDateTime.parse(injectionTimeString, DateTimeFormatter.ofPattern("dd-MMM-yy, HH:mm:ss", Locale.US))
+                LocalDateTime.parse(injectionTimeString, INJECTION_TIME_FORMATTER)
                              .atZone(timeZone)
                              .toInstant());
-        injectionDocument.setInjectionIdentifier(((Element) chemStationResult.sampleInformation.inj).getTextContent());
+        injectionDocument.setInjectionIdentifier(getText(chemStationResult.sampleInformation.inj));
 
         InjectionVolumeSetting injectionVolumeSetting = new InjectionVolumeSetting();
-        injectionVolumeSetting.setValue(Double.parseDouble(((Element) chemStationResult.sampleInformation.inj).getTextContent()));
+        injectionVolumeSetting.setValue(Double.parseDouble(getText(chemStationResult.sampleInformation.inj)));
         injectionVolumeSetting.setUnit("μL");
         injectionDocument.setInjectionVolumeSetting(injectionVolumeSetting);
 
         gasChromatographyDocument.setInjectionDocument(injectionDocument);
 
-        MeasurementAggregateDocument measurementAggregateDocument = new MeasurementAggregateDocument();
-        MeasurementDocument measurementDocument = new MeasurementDocument();
-        measurementDocument.setDetectionType(((Element) chemStationResult.chromatograms.signal.get(0).detector).getTextContent());
-        measurementDocument.setChromatogramDataCube(
-                chromatogramDataCubeMapper.readChromatogramDataCube(new File(folderPath, "FID1A.ch").getPath()));
-
-        List<Peak> peaks = new ArrayList<>();
-        for (CompoundType compoundType : chemStationResult.results.resultsGroup.get(0).peak) {
-            peaks.add(peakMapper.mapPeakFromCompound(compoundType));
+        List<ResultsType.ResultsGroup> resultsGroups = chemStationResult.results != null
+                                                       ? chemStationResult.results.getResultsGroup()
+                                                       : List.of();
+        List<String> chFilePaths = new ArrayList<>();
+        List<List<Peak>> signalPeaks = new ArrayList<>();
+        List<double[]> apexTimes = new ArrayList<>();
+        for (int i = 0; i < signals.size(); i++) {
+            chFilePaths.add(new File(folderPath, signals.get(i).chFileName).getPath());
+
+            List<Peak> peaks = mappedPeaks.get(findResultsGroup(resultsGroups, signals.get(i), i));
+            signalPeaks.add(peaks);
+            apexTimes.add(getRetentionTimesInMinutes(peaks));
         }
-        PeakList peakList = new PeakList();
-        peakList.setPeak(peaks);
-        measurementDocument.setPeakList(peakList);
+        List<ChromatogramDataCube> chromatogramDataCubes = chromatogramDataCubeMapper.readChromatogramDataCubes(chFilePaths,
+                                                                                                               apexTimes,
+                                                                                                               mode);
+
+        List<MeasurementDocument> measurementDocuments = new ArrayList<>();
+        for (int i = 0; i < signals.size(); i++) {
+            MeasurementDocument measurementDocument = new MeasurementDocument();
+            measurementDocument.setDetectionType(signals.get(i).detector);
+            measurementDocument.setChromatogramDataCube(chromatogramDataCubes.get(i));
+
+            PeakList peakList = new PeakList();
+            peakList.setPeak(signalPeaks.get(i));
+            measurementDocument.setPeakList(peakList);
 
-        measurementAggregateDocument.setMeasurementDocument(List.of(measurementDocument));
+            measurementDocuments.add(measurementDocument);
+        }
+
+        MeasurementAggregateDocument measurementAggregateDocument = new MeasurementAggregateDocument();
+        measurementAggregateDocument.setMeasurementDocument(measurementDocuments);
         gasChromatographyDocument.setMeasurementAggregateDocument(measurementAggregateDocument);
 
         document.setDeviceSystemDocument(deviceSystemDocument);
@@ -111,6 +185,68 @@ public class ChemStationToAllotropeMapper {
         return schema;
     }
 
+    /**
+     * Lists the signals of Result.xml, each stored in a {@code <Detector><SignalId>.ch} file such as FID1A.ch. Without
+     * any signal listed, every .ch file of the folder is taken as a signal.
+     */
+    private static List<ChemStationSignal> findSignals(String folderPath, ChemStationResult chemStationResult)
+            throws IOException {
+        List<ChemStationSignal> signals = new ArrayList<>();
+        if (chemStationResult.chromatograms != null) {
+            for (SignalType signal : chemStationResult.chromatograms.getSignal()) {
+                String detector = getText(signal.detector);
+                signals.add(new ChemStationSignal(detector, getText(signal.description),
+                                                  detector + getText(signal.signalId) + ".ch"));
+            }
+        }
+
+        if (signals.isEmpty()) {
+            try (Stream<Path> files = Files.list(Path.of(folderPath))) {
+                files.map(file -> file.getFileName().toString())
+                     .filter(fileName -> fileName.toLowerCase(Locale.ROOT).endsWith(".ch"))
+                     .sorted()
+                     .forEach(fileName -> signals.add(
+                             new ChemStationSignal(fileName.substring(0, fileName.length() - 3), null, fileName)));
+            }
+        }
+        return signals;
+    }
+
+    /**
+     * Returns the index of the results group described like the signal, or else the signal's own index.
+     */
+    private static int findResultsGroup(List<ResultsType.ResultsGroup> resultsGroups, ChemStationSignal signal,
+                                        int signalIndex) {
+        if (signal.description != null) {
+            for (int i = 0; i < resultsGroups.size(); i++) {
+                if (signal.description.trim().equals(getText(resultsGroups.get(i).resultsGroupDescription).trim())) {
+                    return i;
+                }
+            }
+        }
+        return signalIndex;
+    }
+
+    private static double[] getRetentionTimesInMinutes(List<Peak> peaks) {
+        return peaks.stream()
+                    .map(Peak::getRetentionTime)
+                    .filter(retentionTime -> retentionTime != null && retentionTime.getValue() != null)
+                    .mapToDouble(retentionTime -> retentionTime.getUnit().equals("s")
+                                                  ? retentionTime.getValue() / 60
+                                                  : retentionTime.getValue())
+                    .toArray();
+    }
+
+    /**
+     * Returns the text of an untyped element of Result.xml: a string when streamed, a DOM node when unmarshalled.
+     */
+    private static String getText(Object element) {
+        if (element == null) {
+            return "";
+        }
+        return element instanceof Node node ? node.getTextContent() : element.toString();
+    }
+
     private String getDetectorType(String detectorRawType) {
         if (detectorRawType.toLowerCase().contains("fid")) {
             return "Flame Ionization";
@@ -119,15 +255,52 @@ public class ChemStationToAllotropeMapper {
         }
     }
 
-    private ChemStationResult parseXmlResult(String folderPath) throws JAXBException {
-        final String resultFileName = "Result.xml";
+    /**
+     * The peaks of each results group, mapped as Result.xml is read.
+     */
+    private static final class MappedPeaks implements ChemStationResultReader.PeakSink {
 
-        File file = new File(folderPath, resultFileName);
+        private final PeakMapper peakMapper;
+        private final List<List<Peak>> resultsGroupPeaks = new ArrayList<>();
 
-        JAXBContext jaxbContext = JAXBContext.newInstance(ChemStationResult.class);
-        Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
-        jaxbUnmarshaller.setEventHandler(new jakarta.xml.bind.helpers.DefaultValidationEventHandler());
+        private MappedPeaks(PeakMapper peakMapper) {
+            this.peakMapper = peakMapper;
+        }
+
+        @Override
+        public void accept(int resultsGroupIndex, CompoundType compound) {
+            while (resultsGroupPeaks.size() <= resultsGroupIndex) {
+                resultsGroupPeaks.add(new ArrayList<>());
+            }
+            resultsGroupPeaks.get(resultsGroupIndex).add(peakMapper.mapPeakFromCompound(compound));
+        }
 
-        return (ChemStationResult) jaxbUnmarshaller.unmarshal(file);
+        @Override
+        public void clear() {
+            resultsGroupPeaks.clear();
+        }
+
+        /**
+         * Returns a new list of the peaks of the results group, empty if it has none. Signals sharing a results group
+         * share its peaks.
+         */
+        private List<Peak> get(int resultsGroupIndex) {
+            return resultsGroupIndex < resultsGroupPeaks.size()
+                   ? new ArrayList<>(resultsGroupPeaks.get(resultsGroupIndex))
+                   : new ArrayList<>();
+        }
+    }
+
+    private static final class ChemStationSignal {
+
+        private final String detector;
+        private final String description;
+        private final String chFileName;
+
+        private ChemStationSignal(String detector, String description, String chFileName) {
+            this.detector = detector;
+            this.description = description;
+            this.chFileName = chFileName;
+        }
     }
 }
@@ -3,29 +3,160 @@ package fr.ifpen.allotropeconverters.gc.chemstation;
 import fr.ifpen.allotropeconverters.allotropeutils.AllotropeData;
 import fr.ifpen.allotropeconverters.gc.chemstation.chfile.ChFile;
 import fr.ifpen.allotropeconverters.gc.chemstation.chfile.ChFileFactory;
+import fr.ifpen.allotropeconverters.gc.chemstation.chfile.ChromatogramSignal;
+import fr.ifpen.allotropeconverters.gc.chemstation.chfile.DoubleListView;
 import fr.ifpen.allotropeconverters.gc.schema.ChromatogramDataCube;
 import fr.ifpen.allotropeconverters.gc.schema.CubeStructure;
 import fr.ifpen.allotropeconverters.gc.schema.Dimension;
 import fr.ifpen.allotropeconverters.gc.schema.Measure;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 class ChromatogramDataCubeMapper {
 
+    private static final double[] NO_APEX = new double[0];
+    // Reads block on files: a thread is created per signal read concurrently, and stopped after a minute idle.
+    static final Executor SIGNAL_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "gc2asm-signal-reader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ChFileFactory chFileFactory = new ChFileFactory();
+    private final Decimation decimation;
+    private final SamplePrecision precision;
+    private final ConversionListener listener;
+    private final Executor signalExecutor;
+
+    ChromatogramDataCubeMapper() {
+        this(Decimation.none(), SamplePrecision.full(), ConversionListener.none(), SIGNAL_EXECUTOR);
+    }
+
+    ChromatogramDataCubeMapper(Decimation decimation, SamplePrecision precision, ConversionListener listener) {
+        this(decimation, precision, listener, SIGNAL_EXECUTOR);
+    }
+
+    /**
+     * @param signalExecutor reads the signals of multichannel runs but the first; it must not run them on the threads
+     *                       of conversions waiting for them, such as those of the common pool
+     */
+    ChromatogramDataCubeMapper(Decimation decimation, SamplePrecision precision, ConversionListener listener,
+                               Executor signalExecutor) {
+        this.decimation = decimation;
+        this.precision = precision;
+        this.listener = listener;
+        this.signalExecutor = signalExecutor;
+    }
+
     ChromatogramDataCube readChromatogramDataCube(String chFilePath) throws IOException {
-        ChFileFactory chFileFactory = new ChFileFactory();
-        ChFile chFile = chFileFactory.getChFile(chFilePath);
+        return readChromatogramDataCube(chFilePath, ConversionMode.FULL);
+    }
+
+    ChromatogramDataCube readChromatogramDataCube(String chFilePath, ConversionMode mode) throws IOException {
+        return readChromatogramDataCube(chFilePath, mode, NO_APEX);
+    }
+
+    /**
+     * @param apexTimes retention times of the peaks of the signal, in minutes, kept by the decimation
+     */
+    ChromatogramDataCube readChromatogramDataCube(String chFilePath, ConversionMode mode, double[] apexTimes)
+            throws IOException {
+        StageRecording recording = StageRecording.start(ConversionStage.CH_FILE, chFilePath);
+        boolean includeData = mode == ConversionMode.FULL;
+        ChFile chFile = includeData ? chFileFactory.getChFile(chFilePath) : chFileFactory.getLazyChFile(chFilePath);
 
         ChromatogramDataCube chromatogramDataCube = new ChromatogramDataCube();
         chromatogramDataCube.setLabel(chFile.getDetector());
-        chromatogramDataCube.setCubeStructure(getCubeStructure());
-        chromatogramDataCube.setData(createAllotropeDataFromChFile(chFile));
+        // Built for each cube: the structure is mutable, and returned to callers along with the document.
+        chromatogramDataCube.setCubeStructure(createCubeStructure());
+        if (includeData) {
+            chromatogramDataCube.setData(createAllotropeDataFromChFile(chFile, apexTimes));
+        }
+
+        long pointsDecoded = chFile.isSignalLoaded() ? chFile.getSignal().size() : 0;
+        recording.complete(listener, chFile.getBytesRead(), pointsDecoded, 0);
         return chromatogramDataCube;
     }
 
-    private CubeStructure getCubeStructure() {
+    /**
+     * Reads the data cubes of several signals concurrently: the first one on the calling thread, the others with the
+     * signal executor. A multichannel run then takes about the time of its largest signal.<br>
+     * If a signal fails, those not started yet are skipped and those being read are waited for before the failure is
+     * thrown, so that nothing is left decoding after the conversion has failed.
+     */
+    List<ChromatogramDataCube> readChromatogramDataCubes(List<String> chFilePaths, List<double[]> apexTimes,
+                                                         ConversionMode mode) throws IOException {
+        AtomicBoolean failed = new AtomicBoolean();
+        Phaser otherReads = new Phaser(1); // The calling thread, and each other signal while it is read
+        List<CompletableFuture<ChromatogramDataCube>> otherCubes = new ArrayList<>();
+        try {
+            for (int i = 1; i < chFilePaths.size(); i++) {
+                String chFilePath = chFilePaths.get(i);
+                double[] signalApexTimes = apexTimes.get(i);
+                otherReads.register();
+                try {
+                    otherCubes.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            if (failed.get()) {
+                                throw new CancellationException();
+                            }
+                            return readChromatogramDataCube(chFilePath, mode, signalApexTimes);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        } finally {
+                            otherReads.arriveAndDeregister();
+                        }
+                    }, signalExecutor));
+                } catch (RejectedExecutionException e) {
+                    otherReads.arriveAndDeregister();
+                    throw e;
+                }
+            }
+
+            List<ChromatogramDataCube> chromatogramDataCubes = new ArrayList<>();
+            if (!chFilePaths.isEmpty()) {
+                chromatogramDataCubes.add(readChromatogramDataCube(chFilePaths.get(0), mode, apexTimes.get(0)));
+            }
+            for (CompletableFuture<ChromatogramDataCube> otherCube : otherCubes) {
+                chromatogramDataCubes.add(join(otherCube));
+            }
+            return chromatogramDataCubes;
+        } catch (IOException | RuntimeException | Error e) {
+            failed.set(true);
+            otherReads.arriveAndAwaitAdvance();
+            throw e;
+        }
+    }
+
+    private static ChromatogramDataCube join(CompletableFuture<ChromatogramDataCube> cube) throws IOException {
+        try {
+            return cube.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private static CubeStructure createCubeStructure() {
         CubeStructure cubeStructure = new CubeStructure();
 
         Dimension firstDimension = new Dimension();
@@ -44,26 +175,23 @@ class ChromatogramDataCubeMapper {
         return cubeStructure;
     }
 
-    private AllotropeData createAllotropeDataFromChFile(ChFile chFile) {
-        Double[] xValues = this.interpolate(chFile.getStartTime(), chFile.getEndTime(), chFile.getValues().size());
-        return new AllotropeData(List.of(Arrays.asList(xValues)), List.of(chFile.getValues()));
-    }
-
-    /***
-     * Interpolating method - https://stackoverflow.com/questions/30182467/how-to-implement-linear-interpolation-method-in-java-array
-     * @param start start of the interval
-     * @param end end of the interval
-     * @param count count of output interpolated numbers
-     * @return array of interpolated number with specified count
-     */
-    private Double[] interpolate(double start, double end, int count) {
-        if (count < 2) {
-            throw new IllegalArgumentException("interpolate: illegal count!");
+    private AllotropeData createAllotropeDataFromChFile(ChFile chFile, double[] apexTimes) {
+        ChromatogramSignal signal = chFile.getSignal();
+        if (signal.size() < 2) {
+            throw new IllegalArgumentException("Not enough values to build a time axis");
         }
-        Double[] array = new Double[count + 1];
-        for (int i = 0; i <= count; ++i) {
-            array[i] = start + i * (end - start) / count;
+        // Both lists are views on the decoded primitives: values are only boxed, or rounded, when serialized.
+        DoubleListView times;
+        DoubleListView values;
+        if (decimation.isNone()) {
+            times = signal.getTimes();
+            values = signal.getValues();
+        } else {
+            int[] indices = decimation.selectIndices(signal, apexTimes);
+            times = signal.getTimes(indices);
+            values = signal.getValues(indices);
         }
-        return array;
+        return new AllotropeData(List.of(times.withFractionDigits(precision.getTimeFractionDigits(signal))),
+                                 List.of(values.withFractionDigits(precision.getValueFractionDigits(signal))));
     }
 }
@@ -5,135 +5,112 @@ import fr.ifpen.allotropeconverters.gc.schema.ChromatographyColumnFilmThickness;
 import fr.ifpen.allotropeconverters.gc.schema.ChromatographyColumnLength;
 import fr.ifpen.allotropeconverters.gc.schema.ColumnInnerDiameter;
 
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.InputMismatchException;
-import java.util.LinkedHashMap;
-import java.util.Locale;
-import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Scanner;
-import java.util.regex.MatchResult;
-import java.util.regex.Pattern;
-
-import static java.nio.charset.StandardCharsets.UTF_16;
 
 public final class ColumnInformationMapper {
 
-    private static final String COLON_REGEX = "\\s*:\\s*";
-    private static final String SEPARATOR_REGEX = "\\s*";
-    private static final String TEXT_REGEX = "(\\S+)";
-    private static final String NUMBER_REGEX = "([\\d.]+)";
-    private static final String COLUMN_SEPARATOR_REGEX = "(?>\\s+|\\n+)";
-
-    private static final Map<String, Boolean> COLUMN_NAMES_MAP = new LinkedHashMap<>();
-    private static final Pattern COLUMN_PATTERN;
-
-    static {
-        COLUMN_NAMES_MAP.put("Model#", true);
-        COLUMN_NAMES_MAP.put("Manufacturer", true);
-        COLUMN_NAMES_MAP.put("Diameter", false);
-        COLUMN_NAMES_MAP.put("Length", false);
-        COLUMN_NAMES_MAP.put("Film thickness", false);
-    }
-
-    static {
-        StringBuilder pattern = new StringBuilder();
-
-        COLUMN_NAMES_MAP.forEach((columnName, isOnlyText) -> {
-            pattern.append(columnName).append(COLON_REGEX);
-
-            if (!isOnlyText) {
-                pattern.append(NUMBER_REGEX).append(SEPARATOR_REGEX);
-            }
-
-            pattern.append(TEXT_REGEX).append(COLUMN_SEPARATOR_REGEX);
-        });
-
-        COLUMN_PATTERN = Pattern.compile(pattern.toString(), Pattern.MULTILINE);
-    }
+    private static final String COLUMN_SECTION = "Column(s)";
 
     public ChromatographyColumnDocument readColumnDocumentFromFile(String folderPath) throws IOException {
-        ChromatographyColumnDocument columnDocument = new ChromatographyColumnDocument();
-
-        File file = new File(folderPath, "acq.txt");
-        try (FileInputStream fileInputStream = new FileInputStream(file);
-             InputStreamReader inputStreamReader = new InputStreamReader(fileInputStream, UTF_16);
-             Scanner acquisitionScanner = new Scanner(inputStreamReader)) {
+        return mapColumnDocument(AcquisitionMethodReport.read(folderPath));
+    }
 
-            acquisitionScanner.useLocale(Locale.US); //Agilent files are US formatted.
+    /**
+     * Maps the Column(s) section of the report. Blank model and manufacturer entries are left out of the document.
+     *
+     * @throws NoSuchElementException if the report has no Column(s) section, or if its dimensions are missing
+     */
+    public ChromatographyColumnDocument mapColumnDocument(AcquisitionMethodReport report) {
+        /* Looking for
+        =====================================================================
+                          Column(s)
+        =====================================================================
 
-            skipToColumnInformation(acquisitionScanner);
+        Column Description :  HP-PONA
+        Inventory#         :  autoID-1
+        Model#             :  19091S-001
+        Manufacturer       :  Agilent
+        Diameter           :   200.0 µm
+        Length             :   50.0 m
+        Film thickness     :    0.50 µm
+         */
+        AcquisitionMethodReport.Section section = report.getSection(COLUMN_SECTION);
+        if (section == null) {
+            throw new NoSuchElementException("No column information found");
+        }
 
-            MatchResult columnInformation = acquisitionScanner.findAll(COLUMN_PATTERN)
-                                                              .findFirst()
-                                                              .orElseThrow(
-                                                                      () -> new NoSuchElementException("Incorrect column information"));
+        ChromatographyColumnDocument columnDocument = new ChromatographyColumnDocument();
 
-            int groupIndex = 1;
+        columnDocument.setChromatographyColumnPartNumber(getTextEntry(section, "Model#"));
+        columnDocument.setProductManufacturer(getTextEntry(section, "Manufacturer"));
+
+        Quantity diameter = getQuantityEntry(section, "Diameter");
+        ColumnInnerDiameter columnInnerDiameter = new ColumnInnerDiameter();
+        if (diameter.unit.equals("µm")) { //Allotrope format forces mm.
+            columnInnerDiameter.setValue(diameter.value / 1000);
+            columnInnerDiameter.setUnit("mm");
+        } else {
+            columnInnerDiameter.setValue(diameter.value);
+            columnInnerDiameter.setUnit(diameter.unit);
+        }
+        columnDocument.setColumnInnerDiameter(columnInnerDiameter);
 
-            columnDocument.setChromatographyColumnPartNumber(columnInformation.group(groupIndex++)); //Model
-            columnDocument.setProductManufacturer(columnInformation.group(groupIndex++)); //Manufacturer
+        Quantity length = getQuantityEntry(section, "Length");
+        ChromatographyColumnLength chromatographyColumnLength = new ChromatographyColumnLength();
+        chromatographyColumnLength.setValue(length.value);
+        chromatographyColumnLength.setUnit(length.unit);
+        columnDocument.setChromatographyColumnLength(chromatographyColumnLength);
 
-            ColumnInnerDiameter columnInnerDiameter = new ColumnInnerDiameter();
-            double value = Double.parseDouble(columnInformation.group(groupIndex++));
-            String unit = columnInformation.group(groupIndex++);
+        Quantity filmThickness = getQuantityEntry(section, "Film thickness");
+        ChromatographyColumnFilmThickness columnFilmThickness = new ChromatographyColumnFilmThickness();
+        columnFilmThickness.setValue(filmThickness.value);
+        columnFilmThickness.setUnit(filmThickness.unit);
+        columnDocument.setChromatographyColumnFilmThickness(columnFilmThickness);
 
-            if (unit.equals("µm")) { //Allotrope format forces mm.
-                unit = "mm";
-                value = value / 1000;
-            }
-            columnInnerDiameter.setValue(value);
-            columnInnerDiameter.setUnit(unit);
-            columnDocument.setColumnInnerDiameter(columnInnerDiameter);
+        columnDocument.setChromatographyColumnSerialNumber("N/A");
 
-            ChromatographyColumnLength chromatographyColumnLength = new ChromatographyColumnLength();
-            chromatographyColumnLength.setValue(Double.parseDouble(columnInformation.group(groupIndex++)));
-            chromatographyColumnLength.setUnit(columnInformation.group(groupIndex++));
-            columnDocument.setChromatographyColumnLength(chromatographyColumnLength);
+        return columnDocument;
+    }
 
-            ChromatographyColumnFilmThickness columnFilmThickness = new ChromatographyColumnFilmThickness();
-            columnFilmThickness.setValue(Double.parseDouble(columnInformation.group(groupIndex++)));
-            columnFilmThickness.setUnit(columnInformation.group(groupIndex++));
-            columnDocument.setChromatographyColumnFilmThickness(columnFilmThickness);
+    private static String getTextEntry(AcquisitionMethodReport.Section section, String key) {
+        String value = section.getEntry(key);
+        return value == null || value.isEmpty() ? null : value;
+    }
 
-            columnDocument.setChromatographyColumnSerialNumber("N/A");
+    /**
+     * Parses an entry such as {@code 200.0 µm}, in the US format of Agilent files.
+     */
+    private static Quantity getQuantityEntry(AcquisitionMethodReport.Section section, String key) {
+        String value = section.getEntry(key);
+        if (value == null) {
+            throw new NoSuchElementException("Incorrect column information: no " + key);
+        }
 
-            return columnDocument;
-        } catch (InputMismatchException e) {
-            return new ChromatographyColumnDocument();
+        int numberEnd = 0;
+        while (numberEnd < value.length()
+               && (Character.isDigit(value.charAt(numberEnd)) || value.charAt(numberEnd) == '.')) {
+            numberEnd++;
+        }
+        String unit = value.substring(numberEnd).trim();
+        if (numberEnd == 0 || unit.isEmpty()) {
+            throw new NoSuchElementException("Incorrect column information: " + key + " " + value);
+        }
+        try {
+            return new Quantity(Double.parseDouble(value.substring(0, numberEnd)), unit);
+        } catch (NumberFormatException e) {
+            throw new NoSuchElementException("Incorrect column information: " + key + " " + value);
         }
     }
 
-    private void skipToColumnInformation(Scanner acquisitionScanner) {
-                /* Looking for pattern
-        =====================================================================
-                          Column(s)
-        =====================================================================
+    private static final class Quantity {
 
-        Column Description :  HP-PONA
-         */
-        boolean columnSectionFound = false;
-        String line;
-        while ((line = acquisitionScanner.nextLine()) != null) {
-            if (line.contains("======")) {
-                line = acquisitionScanner.nextLine();
-                if (line.contains("Column(s)")) {
-                    acquisitionScanner.nextLine();// === line
-                    acquisitionScanner.nextLine();// empty line
-                    columnSectionFound = true;
-                    break;
-                }
-            }
-        }
+        private final double value;
+        private final String unit;
 
-        if (!columnSectionFound) {
-            throw new NoSuchElementException("No column information found");
+        private Quantity(double value, String unit) {
+            this.value = value;
+            this.unit = unit;
         }
-
-        acquisitionScanner.nextLine(); //Column Description - Not in model
-        acquisitionScanner.nextLine(); //Inventory # - Not in model
     }
 }
@@ -0,0 +1,24 @@
+package fr.ifpen.allotropeconverters.gc.chemstation;
+
+/**
+ * Receives the metrics of each stage of the conversions of a converter, to find out where time goes when they are
+ * slow.<br>
+ * The signals of a folder, and the folders of a batch, are converted concurrently: listeners are called from several
+ * threads at once and must be thread-safe. They are called on the converting thread, so they should be cheap.
+ */
+@FunctionalInterface
+public interface ConversionListener {
+
+    /**
+     * Ignores every stage.
+     */
+    static ConversionListener none() {
+        return metrics -> {
+        };
+    }
+
+    /**
+     * Called once a stage is complete. Failed stages are not reported.
+     */
+    void stageCompleted(StageMetrics metrics);
+}
@@ -0,0 +1,18 @@
+package fr.ifpen.allotropeconverters.gc.chemstation;
+
+/**
+ * Parts of a .D folder included in the converted document.
+ */
+public enum ConversionMode {
+
+    /**
+     * The whole document, chromatogram samples included.
+     */
+    FULL,
+
+    /**
+     * Every document but the chromatogram samples: the data cube only holds its label and structure, read from the .ch
+     * header. The samples are never read, which makes peak list and metadata exports much cheaper.
+     */
+    METADATA_ONLY
+}
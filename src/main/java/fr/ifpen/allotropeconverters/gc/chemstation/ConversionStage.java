@@ -0,0 +1,28 @@
+package fr.ifpen.allotropeconverters.gc.chemstation;
+
+/**
+ * Stages of the conversion of a .D folder, reported to {@link ConversionListener}s and recorded as JDK Flight Recorder
+ * events.
+ */
+public enum ConversionStage {
+
+    /**
+     * Reading Result.xml.
+     */
+    RESULT_XML,
+
+    /**
+     * Reading acq.txt and mapping the column information.
+     */
+    ACQUISITION_METHOD,
+
+    /**
+     * Reading a .ch file and building its chromatogram data cube, samples decoded and decimated.
+     */
+    CH_FILE,
+
+    /**
+     * Serializing the document: to JSON with Jackson, or to a JSON document and its binary sidecar.
+     */
+    SERIALIZATION
+}
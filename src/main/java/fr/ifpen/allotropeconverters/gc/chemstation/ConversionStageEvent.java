@@ -0,0 +1,37 @@
+package fr.ifpen.allotropeconverters.gc.chemstation;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder event of a stage of a conversion, carrying the same measures as {@link StageMetrics}.
+ */
+@Name("fr.ifpen.allotropeconverters.gc.ConversionStage")
+@Label("Conversion Stage")
+@Category({"GC2ASM", "Conversion"})
+@Description("A stage of the conversion of a ChemStation .D folder")
+@StackTrace(false)
+final class ConversionStageEvent extends jdk.jfr.Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Source")
+    @Description("The .ch file, or the .D folder")
+    String source;
+
+    @Label("Bytes Read")
+    @DataAmount
+    long bytesRead;
+
+    @Label("Points Decoded")
+    long pointsDecoded;
+
+    @Label("Output Bytes")
+    @DataAmount
+    long outputBytes;
+}
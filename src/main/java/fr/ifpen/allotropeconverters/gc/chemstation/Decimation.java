@@ -0,0 +1,273 @@
+package fr.ifpen.allotropeconverters.gc.chemstation;
+
+import fr.ifpen.allotropeconverters.gc.chemstation.chfile.ChromatogramSignal;
+
+import java.util.Arrays;
+
+/**
+ * Reduces the number of points of the chromatogram data cube, keeping its shape.<br>
+ * Whatever the method, the first and last points are kept, along with the apex of every peak of the peak list: the
+ * highest point within {@value #APEX_SEARCH_RADIUS} samples of its retention time. Kept points keep their own times,
+ * so the time axis of a decimated cube has as many elements as its values.
+ */
+public final class Decimation {
+
+    static final int APEX_SEARCH_RADIUS = 2;
+
+    private enum Method {NONE, LARGEST_TRIANGLE_THREE_BUCKETS, MIN_MAX, MIN_MAX_TOLERANCE}
+
+    private static final Decimation NONE = new Decimation(Method.NONE, 0, 0);
+
+    private final Method method;
+    private final int targetPoints;
+    private final double tolerance;
+
+    private Decimation(Method method, int targetPoints, double tolerance) {
+        this.method = method;
+        this.targetPoints = targetPoints;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Keeps every point.
+     */
+    public static Decimation none() {
+        return NONE;
+    }
+
+    /**
+     * Largest-Triangle-Three-Buckets: splits the signal in buckets and keeps, from each, the point forming the largest
+     * triangle with the previously kept point and the average of the next bucket. Best for plotting.
+     *
+     * @param targetPoints number of points kept, peak apexes aside
+     */
+    public static Decimation largestTriangleThreeBuckets(int targetPoints) {
+        if (targetPoints < 3) {
+            throw new IllegalArgumentException("At least 3 points must be kept");
+        }
+        return new Decimation(Method.LARGEST_TRIANGLE_THREE_BUCKETS, targetPoints, 0);
+    }
+
+    /**
+     * Splits the signal in buckets of equal duration and keeps the lowest and highest point of each, so that no
+     * extremum is lost.
+     *
+     * @param targetPoints maximum number of points kept, peak apexes aside
+     */
+    public static Decimation minMax(int targetPoints) {
+        if (targetPoints < 2) {
+            throw new IllegalArgumentException("At least 2 points must be kept");
+        }
+        return new Decimation(Method.MIN_MAX, targetPoints, 0);
+    }
+
+    /**
+     * Splits the signal in buckets as long as their values stay within the tolerance, and keeps the lowest and highest
+     * point of each: flat baselines shrink to a few points while peaks keep their full resolution.
+     *
+     * @param tolerance maximum range of the values of a bucket, in picoampere
+     */
+    public static Decimation minMaxWithTolerance(double tolerance) {
+        if (!(tolerance >= 0)) {
+            throw new IllegalArgumentException("Tolerance must be positive");
+        }
+        return new Decimation(Method.MIN_MAX_TOLERANCE, 0, tolerance);
+    }
+
+    @Override
+    public String toString() {
+        switch (method) {
+            case LARGEST_TRIANGLE_THREE_BUCKETS:
+                return "largestTriangleThreeBuckets(" + targetPoints + ")";
+            case MIN_MAX:
+                return "minMax(" + targetPoints + ")";
+            case MIN_MAX_TOLERANCE:
+                return "minMaxWithTolerance(" + tolerance + ")";
+            default:
+                return "none";
+        }
+    }
+
+    boolean isNone() {
+        return method == Method.NONE;
+    }
+
+    /**
+     * Returns the sorted indices of the points to keep.
+     *
+     * @param apexTimes retention times of the peaks, in minutes
+     */
+    int[] selectIndices(ChromatogramSignal signal, double[] apexTimes) {
+        int[] selected;
+        switch (method) {
+            case LARGEST_TRIANGLE_THREE_BUCKETS:
+                selected = selectLargestTriangles(signal, targetPoints);
+                break;
+            case MIN_MAX:
+                selected = selectMinMax(signal, Math.max(1, targetPoints / 2));
+                break;
+            case MIN_MAX_TOLERANCE:
+                selected = selectMinMaxWithinTolerance(signal, tolerance);
+                break;
+            default:
+                return selectAll(signal.size());
+        }
+
+        int[] apexes = new int[apexTimes.length];
+        for (int i = 0; i < apexTimes.length; i++) {
+            apexes[i] = findApex(signal, apexTimes[i]);
+        }
+        return mergeSorted(selected, apexes);
+    }
+
+    private static int[] selectLargestTriangles(ChromatogramSignal signal, int targetPoints) {
+        int size = signal.size();
+        if (targetPoints >= size) {
+            return selectAll(size);
+        }
+
+        int[] selected = new int[targetPoints];
+        double bucketSize = (double) (size - 2) / (targetPoints - 2);
+        int previous = 0;
+        selected[0] = 0;
+
+        for (int bucket = 0; bucket < targetPoints - 2; bucket++) {
+            // Average of the next bucket, or the last point for the last bucket
+            int nextStart = (int) ((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, size);
+            double averageIndex = 0;
+            double averageValue = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageIndex += i;
+                averageValue += signal.getValue(i);
+            }
+            int nextCount = nextEnd - nextStart;
+            averageIndex /= nextCount;
+            averageValue /= nextCount;
+
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = (int) ((bucket + 1) * bucketSize) + 1;
+            double previousValue = signal.getValue(previous);
+            double maxArea = -1;
+            int kept = start;
+            for (int i = start; i < end; i++) {
+                // Twice the area of the triangle: the factor does not change the comparison.
+                double area = Math.abs((previous - averageIndex) * (signal.getValue(i) - previousValue)
+                                       - (previous - i) * (averageValue - previousValue));
+                if (area > maxArea) {
+                    maxArea = area;
+                    kept = i;
+                }
+            }
+            selected[bucket + 1] = kept;
+            previous = kept;
+        }
+
+        selected[targetPoints - 1] = size - 1;
+        return selected;
+    }
+
+    private static int[] selectMinMax(ChromatogramSignal signal, int buckets) {
+        int size = signal.size();
+        if (2 * buckets >= size) {
+            return selectAll(size);
+        }
+
+        int[] selected = new int[2 * buckets + 2];
+        int count = 0;
+        selected[count++] = 0;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            int start = (int) ((long) bucket * size / buckets);
+            int end = (int) ((long) (bucket + 1) * size / buckets);
+            count = addMinMax(signal, start, end, selected, count);
+        }
+        selected[count++] = size - 1;
+        return Arrays.copyOf(selected, count);
+    }
+
+    private static int[] selectMinMaxWithinTolerance(ChromatogramSignal signal, double tolerance) {
+        int size = signal.size();
+        int[] selected = new int[size + 2];
+        int count = 0;
+        selected[count++] = 0;
+
+        int start = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            double value = signal.getValue(i);
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+            if (max - min > tolerance) {
+                count = addMinMax(signal, start, i, selected, count);
+                start = i;
+                min = value;
+                max = value;
+            }
+        }
+        count = addMinMax(signal, start, size, selected, count);
+        selected[count++] = size - 1;
+        return Arrays.copyOf(selected, count);
+    }
+
+    /**
+     * Adds the indices of the lowest and highest values of the range, in time order. Returns the new count.
+     */
+    private static int addMinMax(ChromatogramSignal signal, int start, int end, int[] selected, int count) {
+        if (start >= end) {
+            return count;
+        }
+        int minIndex = start;
+        int maxIndex = start;
+        for (int i = start + 1; i < end; i++) {
+            double value = signal.getValue(i);
+            if (value < signal.getValue(minIndex)) {
+                minIndex = i;
+            } else if (value > signal.getValue(maxIndex)) {
+                maxIndex = i;
+            }
+        }
+        selected[count++] = Math.min(minIndex, maxIndex);
+        if (minIndex != maxIndex) {
+            selected[count++] = Math.max(minIndex, maxIndex);
+        }
+        return count;
+    }
+
+    private static int findApex(ChromatogramSignal signal, double apexTime) {
+        int last = signal.size() - 1;
+        int nearest = (int) Math.round((apexTime - signal.getStartTime()) / signal.getStep());
+        nearest = Math.max(0, Math.min(last, nearest));
+
+        int apex = nearest;
+        for (int i = Math.max(0, nearest - APEX_SEARCH_RADIUS); i <= Math.min(last, nearest + APEX_SEARCH_RADIUS); i++) {
+            if (signal.getValue(i) > signal.getValue(apex)) {
+                apex = i;
+            }
+        }
+        return apex;
+    }
+
+    private static int[] selectAll(int size) {
+        int[] selected = new int[size];
+        Arrays.setAll(selected, i -> i);
+        return selected;
+    }
+
+    /**
+     * Merges sorted indices with unsorted ones, removing duplicates.
+     */
+    private static int[] mergeSorted(int[] sorted, int[] others) {
+        int[] merged = Arrays.copyOf(sorted, sorted.length + others.length);
+        System.arraycopy(others, 0, merged, sorted.length, others.length);
+        Arrays.sort(merged);
+
+        int count = 0;
+        for (int i = 0; i < merged.length; i++) {
+            if (count == 0 || merged[i] != merged[count - 1]) {
+                merged[count++] = merged[i];
+            }
+        }
+        return Arrays.copyOf(merged, count);
+    }
+}
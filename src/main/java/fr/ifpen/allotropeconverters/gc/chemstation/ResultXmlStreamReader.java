@@ -0,0 +1,293 @@
+package fr.ifpen.allotropeconverters.gc.chemstation;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads Result.xml files in a single streaming pass, pulling only the elements the mappers use.<br>
+ * The result has the shape JAXB gives it, with plain strings instead of DOM elements for the untyped elements. Every
+ * other element is skipped without building anything, and each peak is built as soon as its element ends: the cost
+ * grows with the number of peaks, not with the size of the file. Given a {@link ChemStationResultReader.PeakSink},
+ * peaks are handed to it as they are read instead of being kept in their results groups, so that the whole list is
+ * never held.<br>
+ * Instances are thread-safe.
+ */
+final class ResultXmlStreamReader {
+
+    private static final XMLInputFactory INPUT_FACTORY = createInputFactory();
+
+    ChemStationResult read(Path file) throws IOException, XMLStreamException {
+        return read(file, null);
+    }
+
+    /**
+     * @param peaks receives the peaks of each results group, which are then left out of the result, or null to keep
+     *              them in their groups
+     */
+    ChemStationResult read(Path file, ChemStationResultReader.PeakSink peaks) throws IOException, XMLStreamException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(in);
+            try {
+                reader.nextTag();
+                if (!reader.getLocalName().equals("ChemStationResult")) {
+                    throw new XMLStreamException("Unexpected root element " + reader.getLocalName(), reader.getLocation());
+                }
+                return readResult(reader, peaks);
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    private static ChemStationResult readResult(XMLStreamReader reader, ChemStationResultReader.PeakSink peaks)
+            throws XMLStreamException {
+        ChemStationResult result = new ChemStationResult();
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case "Acquisition":
+                    result.acquisition = readAcquisition(reader);
+                    break;
+                case "SampleInformation":
+                    result.sampleInformation = readSampleInformation(reader);
+                    break;
+                case "Chromatograms":
+                    result.chromatograms = readChromatograms(reader);
+                    break;
+                case "Results":
+                    result.results = readResults(reader, peaks);
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+        return result;
+    }
+
+    private static ChemStationResult.Acquisition readAcquisition(XMLStreamReader reader) throws XMLStreamException {
+        ChemStationResult.Acquisition acquisition = new ChemStationResult.Acquisition();
+        while (nextChild(reader)) {
+            if (reader.getLocalName().equals("InstrumentName")) {
+                acquisition.instrumentName = readText(reader);
+            } else {
+                skipElement(reader);
+            }
+        }
+        return acquisition;
+    }
+
+    private static ChemStationResult.SampleInformation readSampleInformation(XMLStreamReader reader)
+            throws XMLStreamException {
+        ChemStationResult.SampleInformation sampleInformation = new ChemStationResult.SampleInformation();
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case "Inj":
+                    sampleInformation.inj = readText(reader);
+                    break;
+                case "Method":
+                    sampleInformation.method = readText(reader);
+                    break;
+                case "Operator":
+                    sampleInformation.operator = readText(reader);
+                    break;
+                case "InjectionDateTime":
+                    sampleInformation.injectionDateTime = readText(reader);
+                    break;
+                case "SampleName":
+                    sampleInformation.sampleName = readText(reader);
+                    break;
+                case "SampleInfo":
+                    sampleInformation.sampleInfo = readText(reader);
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+        return sampleInformation;
+    }
+
+    private static ChemStationResult.Chromatograms readChromatograms(XMLStreamReader reader) throws XMLStreamException {
+        ChemStationResult.Chromatograms chromatograms = new ChemStationResult.Chromatograms();
+        while (nextChild(reader)) {
+            if (reader.getLocalName().equals("Signal")) {
+                chromatograms.getSignal().add(readSignal(reader));
+            } else {
+                skipElement(reader);
+            }
+        }
+        return chromatograms;
+    }
+
+    private static ChemStationResult.Chromatograms.Signal readSignal(XMLStreamReader reader) throws XMLStreamException {
+        ChemStationResult.Chromatograms.Signal signal = new ChemStationResult.Chromatograms.Signal();
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case "Title":
+                    signal.title = readText(reader);
+                    break;
+                case "Description":
+                    signal.description = readText(reader);
+                    break;
+                case "Detector":
+                    signal.detector = readText(reader);
+                    break;
+                case "SignalId":
+                    signal.signalId = readText(reader);
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+        return signal;
+    }
+
+    private static ResultsType readResults(XMLStreamReader reader, ChemStationResultReader.PeakSink peaks)
+            throws XMLStreamException {
+        ResultsType results = new ResultsType();
+        while (nextChild(reader)) {
+            if (reader.getLocalName().equals("ResultsGroup")) {
+                int resultsGroupIndex = results.getResultsGroup().size();
+                results.getResultsGroup().add(readResultsGroup(reader, resultsGroupIndex, peaks));
+            } else {
+                skipElement(reader);
+            }
+        }
+        return results;
+    }
+
+    private static ResultsType.ResultsGroup readResultsGroup(XMLStreamReader reader, int resultsGroupIndex,
+                                                             ChemStationResultReader.PeakSink peaks)
+            throws XMLStreamException {
+        ResultsType.ResultsGroup resultsGroup = new ResultsType.ResultsGroup();
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case "ResultsGroupDescription":
+                    resultsGroup.resultsGroupDescription = readText(reader);
+                    break;
+                case "Peak":
+                    CompoundType compound = readCompound(reader);
+                    if (peaks != null) {
+                        peaks.accept(resultsGroupIndex, compound);
+                    } else {
+                        resultsGroup.getPeak().add(compound);
+                    }
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+        return resultsGroup;
+    }
+
+    private static CompoundType readCompound(XMLStreamReader reader) throws XMLStreamException {
+        CompoundType compound = new CompoundType();
+        while (nextChild(reader)) {
+            switch (reader.getLocalName()) {
+                case "CompoundID":
+                    compound.compoundID = new BigInteger(readText(reader).trim());
+                    break;
+                case "MeasRetTime":
+                    compound.measRetTime = readValue(reader);
+                    break;
+                case "Area":
+                    compound.area = readValue(reader);
+                    break;
+                case "Height":
+                    compound.height = readValue(reader);
+                    break;
+                case "Name":
+                    compound.name = readText(reader);
+                    break;
+                case "Amount":
+                    compound.amount = readValue(reader);
+                    break;
+                case "PlatesHalfWidth":
+                    compound.platesHalfWidth = readValue(reader);
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+        return compound;
+    }
+
+    private static Value readValue(XMLStreamReader reader) throws XMLStreamException {
+        Value value = new Value();
+        value.unit = reader.getAttributeValue(null, "Unit");
+        value.suitability = reader.getAttributeValue(null, "Suitability");
+        value.content = readText(reader);
+        return value;
+    }
+
+    /**
+     * Moves to the next child of the current element. Returns false, on the end of the current element, if there is
+     * none left.
+     */
+    private static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                return true;
+            }
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the text of the current element and its descendants, like the text content of a DOM element, and moves
+     * to its end.
+     */
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            switch (reader.next()) {
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                case XMLStreamConstants.ENTITY_REFERENCE:
+                    text.append(reader.getText());
+                    break;
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return text.toString();
+    }
+
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        // Result files never reference external entities: refusing them keeps the reader safe from XXE.
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
@@ -0,0 +1,103 @@
+package fr.ifpen.allotropeconverters.gc.chemstation;
+
+import fr.ifpen.allotropeconverters.gc.chemstation.chfile.ChromatogramSignal;
+
+/**
+ * Number of decimals written for the points of the chromatogram data cubes.<br>
+ * By default, every point is written with the shortest decimal that reads back as the same double. The digits beyond
+ * the resolution of the detector are noise, though: rounding them off makes documents smaller and faster to write.
+ * When values are rounded, times are rounded to a thousandth of the sampling step, which keeps them distinct and
+ * evenly spaced.
+ */
+public final class SamplePrecision {
+
+    static final int EXACT = -1;
+    private static final int MAX_FRACTION_DIGITS = 17;
+    private static final double TIME_RESOLUTION_PER_STEP = 1e-3;
+
+    private enum Method {FULL, FILE_SCALING, RESOLUTION}
+
+    private static final SamplePrecision FULL = new SamplePrecision(Method.FULL, 0);
+    private static final SamplePrecision FILE_SCALING = new SamplePrecision(Method.FILE_SCALING, 0);
+
+    private final Method method;
+    private final double resolution;
+
+    private SamplePrecision(Method method, double resolution) {
+        this.method = method;
+        this.resolution = resolution;
+    }
+
+    /**
+     * Writes every point exactly.
+     */
+    public static SamplePrecision full() {
+        return FULL;
+    }
+
+    /**
+     * Rounds values to the resolution of their .ch file: the current of one step of its raw samples, given by its
+     * scaling. Values of files whose unit cannot be converted linearly to picoampere are written exactly.
+     */
+    public static SamplePrecision fileScaling() {
+        return FILE_SCALING;
+    }
+
+    /**
+     * Rounds values to the given resolution.
+     *
+     * @param resolution largest acceptable rounding step, in picoampere: values are written with the fewest decimals
+     *                   finer than it
+     */
+    public static SamplePrecision resolution(double resolution) {
+        if (!(resolution > 0) || Double.isInfinite(resolution)) {
+            throw new IllegalArgumentException("Resolution must be positive");
+        }
+        return new SamplePrecision(Method.RESOLUTION, resolution);
+    }
+
+    @Override
+    public String toString() {
+        switch (method) {
+            case FILE_SCALING:
+                return "fileScaling";
+            case RESOLUTION:
+                return "resolution(" + resolution + ")";
+            default:
+                return "full";
+        }
+    }
+
+    /**
+     * Returns the number of decimals of the values of the signal, or {@link #EXACT}.
+     */
+    int getValueFractionDigits(ChromatogramSignal signal) {
+        switch (method) {
+            case FILE_SCALING:
+                return getFractionDigits(signal.getResolution());
+            case RESOLUTION:
+                return getFractionDigits(resolution);
+            default:
+                return EXACT;
+        }
+    }
+
+    /**
+     * Returns the number of decimals of the times of the signal, or {@link #EXACT}.
+     */
+    int getTimeFractionDigits(ChromatogramSignal signal) {
+        return method == Method.FULL ? EXACT : getFractionDigits(Math.abs(signal.getStep()) * TIME_RESOLUTION_PER_STEP);
+    }
+
+    /**
+     * Returns the fewest decimals whose last one is finer than the resolution, or {@link #EXACT} if the resolution is
+     * unknown or too fine to round anything.
+     */
+    private static int getFractionDigits(double resolution) {
+        if (!(resolution > 0) || Double.isInfinite(resolution)) {
+            return EXACT;
+        }
+        int fractionDigits = Math.max(0, (int) Math.ceil(-Math.log10(resolution)));
+        return fractionDigits > MAX_FRACTION_DIGITS ? EXACT : fractionDigits;
+    }
+}
@@ -0,0 +1,68 @@
+package fr.ifpen.allotropeconverters.gc.chemstation;
+
+import java.time.Duration;
+
+/**
+ * Measures of a stage of a conversion. Sizes and counts a stage does not involve are 0: only .ch files decode points,
+ * and only the serialization outputs bytes.
+ */
+public final class StageMetrics {
+
+    private final ConversionStage stage;
+    private final String source;
+    private final long wallTimeNanos;
+    private final long bytesRead;
+    private final long pointsDecoded;
+    private final long outputBytes;
+
+    StageMetrics(ConversionStage stage, String source, long wallTimeNanos, long bytesRead, long pointsDecoded,
+                 long outputBytes) {
+        this.stage = stage;
+        this.source = source;
+        this.wallTimeNanos = wallTimeNanos;
+        this.bytesRead = bytesRead;
+        this.pointsDecoded = pointsDecoded;
+        this.outputBytes = outputBytes;
+    }
+
+    public ConversionStage getStage() {
+        return stage;
+    }
+
+    /**
+     * Returns the path of the file or folder the stage processed: the .ch file for {@link ConversionStage#CH_FILE}, the
+     * .D folder otherwise.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    public Duration getWallTime() {
+        return Duration.ofNanos(wallTimeNanos);
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getPointsDecoded() {
+        return pointsDecoded;
+    }
+
+    /**
+     * Returns the number of points decoded per second of wall time, or 0 if no point was decoded.
+     */
+    public double getPointsPerSecond() {
+        return pointsDecoded == 0 ? 0 : pointsDecoded * 1e9 / Math.max(wallTimeNanos, 1);
+    }
+
+    public long getOutputBytes() {
+        return outputBytes;
+    }
+
+    @Override
+    public String toString() {
+        return stage + " " + source + ": " + wallTimeNanos / 1_000_000.0 + " ms, " + bytesRead + " bytes read, "
+               + pointsDecoded + " points decoded, " + outputBytes + " bytes written";
+    }
+}
@@ -0,0 +1,39 @@
+package fr.ifpen.allotropeconverters.gc.chemstation;
+
+/**
+ * Measures a stage of a conversion in progress, for the converters: on completion, the stage is reported to the
+ * listener and recorded as a {@code fr.ifpen.allotropeconverters.gc.ConversionStage} Flight Recorder event. Events cost
+ * next to nothing when no recording is running.
+ */
+public final class StageRecording {
+
+    private final ConversionStage stage;
+    private final String source;
+    private final long startNanos;
+    private final ConversionStageEvent event = new ConversionStageEvent();
+
+    private StageRecording(ConversionStage stage, String source) {
+        this.stage = stage;
+        this.source = source;
+        event.begin();
+        this.startNanos = System.nanoTime();
+    }
+
+    public static StageRecording start(ConversionStage stage, String source) {
+        return new StageRecording(stage, source);
+    }
+
+    public void complete(ConversionListener listener, long bytesRead, long pointsDecoded, long outputBytes) {
+        long wallTimeNanos = System.nanoTime() - startNanos;
+        event.end();
+        if (event.shouldCommit()) {
+            event.stage = stage.name();
+            event.source = source;
+            event.bytesRead = bytesRead;
+            event.pointsDecoded = pointsDecoded;
+            event.outputBytes = outputBytes;
+            event.commit();
+        }
+        listener.stageCompleted(new StageMetrics(stage, source, wallTimeNanos, bytesRead, pointsDecoded, outputBytes));
+    }
+}
@@ -4,10 +4,15 @@ import javax.measure.quantity.ElectricCurrent;
 import javax.measure.quantity.Quantity;
 import javax.measure.unit.SI;
 import javax.measure.unit.Unit;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.List;
 
+import static fr.ifpen.allotropeconverters.gc.chemstation.chfile.ReadHelpers.readFile;
 import static fr.ifpen.allotropeconverters.gc.chemstation.chfile.ReadHelpers.readMetadataTime;
 import static fr.ifpen.allotropeconverters.gc.chemstation.chfile.ReadHelpers.readStringAtPosition;
 
@@ -22,16 +27,30 @@ public abstract class ChFile {
     protected final int yScalingPosition;
     protected final int detectorPosition;
 
-    protected List<Double> values;
+    protected double[] values;
     protected Float startTime;
     protected Float endTime;
     protected Unit<ElectricCurrent> unit;
-    protected Double yScaling;
-    protected Double yOffset;
+    protected double yScaling;
+    protected double yOffset;
     protected String detector;
+    private final Path lazyFile;
+    private volatile ChromatogramSignal signal;
+    private volatile long bytesRead;
 
-    protected ChFile(RandomAccessFile input, int dataStart, int startTimePosition, int endTimePosition, int unitsPosition,
+    protected ChFile(ByteBuffer input, int dataStart, int startTimePosition, int endTimePosition, int unitsPosition,
                      int yOffsetPosition, int yScalingPosition, int detectorPosition) throws IOException {
+        this(input, null, dataStart, startTimePosition, endTimePosition, unitsPosition, yOffsetPosition, yScalingPosition,
+             detectorPosition);
+    }
+
+    /**
+     * @param lazyFile if not null, the input only holds the header, and samples are read from this file on the first
+     *                 call to {@link #getSignal()}
+     */
+    protected ChFile(ByteBuffer input, Path lazyFile, int dataStart, int startTimePosition, int endTimePosition,
+                     int unitsPosition, int yOffsetPosition, int yScalingPosition, int detectorPosition) throws IOException {
+        this.lazyFile = lazyFile;
         this.dataStart = dataStart;
         this.startTimePosition = startTimePosition;
         this.endTimePosition = endTimePosition;
@@ -39,18 +58,90 @@ public abstract class ChFile {
         this.yOffsetPosition = yOffsetPosition;
         this.yScalingPosition = yScalingPosition;
         this.detectorPosition = detectorPosition;
+        this.bytesRead = input.limit();
+
+        try {
+            readMetadata(input);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new EOFException("Truncated .ch file");
+        }
+        if (lazyFile == null) {
+            decode(input);
+        }
+    }
 
-        readMetadata(input);
-        parseData(input);
+    private void decode(ByteBuffer input) throws IOException {
+        try {
+            parseData(input);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new EOFException("Truncated .ch file");
+        }
+        SampleTransform transform = getSampleTransform();
+        transform.applyInPlace(values);
+        signal = new ChromatogramSignal(values, startTime, endTime, transform.getResolution());
     }
 
-    protected abstract void parseData(RandomAccessFile input) throws IOException;
+    /**
+     * Decodes the samples into {@link #values} as raw numbers, before the file scaling and unit conversion.
+     */
+    protected abstract void parseData(ByteBuffer input) throws IOException;
+
+    /**
+     * Returns a decoder of the raw samples of the data section, for files read in parts as they are written.
+     */
+    abstract SampleDecoder createSampleDecoder();
+
+    /**
+     * Returns the conversion of raw samples to picoampere given by the header.
+     */
+    SampleTransform getSampleTransform() {
+        return SampleTransform.of(yScaling, yOffset, unit.getConverterTo(PICO_AMPERE_UNIT));
+    }
 
     /**
      * Returns the values found in the .ch file, converted to picoampere as the standard imposes.
      */
     public List<Double> getValues() {
-        return values;
+        return getSignal().getValues();
+    }
+
+    /**
+     * Returns the values found in the .ch file as primitives, converted to picoampere as the standard imposes, along
+     * with their time range.<br>
+     * Lazily loaded files are read and decoded by the first call, which throws an {@link UncheckedIOException} if that
+     * fails.
+     */
+    public ChromatogramSignal getSignal() {
+        ChromatogramSignal loadedSignal = signal;
+        if (loadedSignal == null) {
+            synchronized (this) {
+                if (signal == null) {
+                    try {
+                        ByteBuffer input = readFile(lazyFile, Long.MAX_VALUE, DecodeContext.current()::getReadBuffer);
+                        bytesRead += input.limit();
+                        decode(input);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                loadedSignal = signal;
+            }
+        }
+        return loadedSignal;
+    }
+
+    /**
+     * Tells whether the samples are decoded, which lazily loaded files only do when first needed.
+     */
+    public boolean isSignalLoaded() {
+        return signal != null;
+    }
+
+    /**
+     * Returns the number of bytes read from the file so far: its header, and its samples once decoded.
+     */
+    public long getBytesRead() {
+        return bytesRead;
     }
 
     public Float getStartTime() {
@@ -83,16 +174,13 @@ public abstract class ChFile {
         this.unit = localUnit.asType(ElectricCurrent.class);
     }
 
-    protected void readMetadata(RandomAccessFile input) throws IOException {
+    protected void readMetadata(ByteBuffer input) {
         startTime = readMetadataTime(input, startTimePosition);
         endTime = readMetadataTime(input, endTimePosition);
         setUnit(readStringAtPosition(input, unitsPosition, true));
 
-        input.seek(yOffsetPosition);
-        yOffset = input.readDouble();
-
-        input.seek(yScalingPosition);
-        yScaling = input.readDouble();
+        yOffset = input.getDouble(yOffsetPosition);
+        yScaling = input.getDouble(yScalingPosition);
 
         detector = readStringAtPosition(input, detectorPosition, true);
     }
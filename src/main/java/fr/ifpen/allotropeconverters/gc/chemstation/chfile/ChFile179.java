@@ -1,11 +1,10 @@
 package fr.ifpen.allotropeconverters.gc.chemstation.chfile;
 
-import javax.measure.converter.UnitConverter;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.util.ArrayList;
-
-import static fr.ifpen.allotropeconverters.gc.chemstation.chfile.ReadHelpers.readLittleEndianDouble;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.file.Path;
 
 class ChFile179 extends ChFile {
 
@@ -18,25 +17,54 @@ class ChFile179 extends ChFile {
     private static final int Y_SCALING_POSITION = 4732;
     private static final int DETECTOR_POSITION = 4213;
 
-    ChFile179(RandomAccessFile input) throws IOException {
-        super(input, DATA_START, START_TIME_POSITION, END_TIME_POSITION, UNITS_POSITION, Y_OFFSET_POSITION, Y_SCALING_POSITION,
-              DETECTOR_POSITION);
+    ChFile179(ByteBuffer input) throws IOException {
+        this(input, null);
+    }
+
+    /**
+     * @param lazyFile if not null, the input only holds the header, and samples are read from this file when needed
+     */
+    ChFile179(ByteBuffer input, Path lazyFile) throws IOException {
+        super(input, lazyFile, DATA_START, START_TIME_POSITION, END_TIME_POSITION, UNITS_POSITION, Y_OFFSET_POSITION,
+              Y_SCALING_POSITION, DETECTOR_POSITION);
     }
 
     @Override
-    protected void parseData(RandomAccessFile input) throws IOException {
-        long numberOfPoints = (input.length() - DATA_START) / 8;
-        if (numberOfPoints > Integer.MAX_VALUE) {
-            throw new IllegalArgumentException("Input too large to parse");
-        }
+    protected void parseData(ByteBuffer input) {
+        ByteBuffer data = input.duplicate().position(Math.min(DATA_START, input.limit())).slice();
+        SampleDecoder decoder = createSampleDecoder();
+
+        values = new double[decoder.getMaxSampleCount(data.limit())];
+        decoder.decode(data, values, 0, values.length);
+    }
 
-        values = new ArrayList<>((int) numberOfPoints);
-        UnitConverter unitConverter = unit.getConverterTo(PICO_AMPERE_UNIT);
+    @Override
+    SampleDecoder createSampleDecoder() {
+        return new Decoder();
+    }
+
+    /**
+     * Samples are little-endian doubles, unlike the header: decoding them keeps no state.
+     */
+    private static final class Decoder implements SampleDecoder {
 
-        input.seek(DATA_START);
+        @Override
+        public int getMaxSampleCount(int byteCount) {
+            return byteCount / Double.BYTES;
+        }
+
+        @Override
+        public int getSampleSize() {
+            return Double.BYTES;
+        }
 
-        for (int i = 0; i < numberOfPoints; i++) {
-            values.add(unitConverter.convert(readLittleEndianDouble(input) * yScaling + yOffset));
+        @Override
+        public int decode(ByteBuffer input, double[] values, int offset, int length) {
+            int count = Math.min(length, getMaxSampleCount(input.remaining()));
+            DoubleBuffer data = input.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            data.get(values, offset, count);
+            input.position(input.position() + count * Double.BYTES);
+            return count;
         }
     }
 }
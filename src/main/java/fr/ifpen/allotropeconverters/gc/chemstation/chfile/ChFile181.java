@@ -1,10 +1,9 @@
 package fr.ifpen.allotropeconverters.gc.chemstation.chfile;
 
-import javax.measure.converter.UnitConverter;
-import java.io.EOFException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Path;
 
 class ChFile181 extends ChFile {
 
@@ -16,40 +15,95 @@ class ChFile181 extends ChFile {
     private static final int Y_OFFSET_POSITION = 4724;
     private static final int Y_SCALING_POSITION = 4732;
     private static final int DETECTOR_POSITION = 4213;
+    private static final short ABSOLUTE_VALUE = Short.MAX_VALUE;
+    private static final int ABSOLUTE_VALUE_SHORTS = 4;
 
-    ChFile181(RandomAccessFile input) throws IOException {
-        super(input, DATA_START, START_TIME_POSITION, END_TIME_POSITION, UNITS_POSITION, Y_OFFSET_POSITION, Y_SCALING_POSITION,
-              DETECTOR_POSITION);
+    ChFile181(ByteBuffer input) throws IOException {
+        this(input, null);
+    }
+
+    /**
+     * @param lazyFile if not null, the input only holds the header, and samples are read from this file when needed
+     */
+    ChFile181(ByteBuffer input, Path lazyFile) throws IOException {
+        super(input, lazyFile, DATA_START, START_TIME_POSITION, END_TIME_POSITION, UNITS_POSITION, Y_OFFSET_POSITION,
+              Y_SCALING_POSITION, DETECTOR_POSITION);
+    }
+
+    @Override
+    protected void parseData(ByteBuffer input) {
+        ByteBuffer data = input.duplicate().position(Math.min(DATA_START, input.limit())).slice();
+
+        values = new double[countValues(data.asShortBuffer())];
+        createSampleDecoder().decode(data, values, 0, values.length);
     }
 
     @Override
-    protected void parseData(RandomAccessFile input) throws IOException {
-        input.seek(DATA_START);
+    SampleDecoder createSampleDecoder() {
+        return new Decoder();
+    }
+
+    /**
+     * Counts the complete values of the data, a trailing incomplete one being ignored.
+     */
+    private static int countValues(ShortBuffer data) {
+        int limit = data.limit();
+        int count = 0;
+        int position = 0;
+        while (position < limit) {
+            if (data.get(position) != ABSOLUTE_VALUE) {
+                position++;
+            } else if (position + ABSOLUTE_VALUE_SHORTS <= limit) {
+                position += ABSOLUTE_VALUE_SHORTS;
+            } else {
+                break;
+            }
+            count++;
+        }
+        return count;
+    }
 
-        values = new ArrayList<>();
-        long[] buffer = new long[] {0, 0, 0};
+    /**
+     * Big endian shorts: second order differences, or ABSOLUTE_VALUE followed by a short and an int. The value and its
+     * first difference carry over from one sample to the next.
+     */
+    private static final class Decoder implements SampleDecoder {
 
-        UnitConverter unitConverter = unit.getConverterTo(PICO_AMPERE_UNIT);
+        private long value;
+        private long delta;
 
-        boolean endOfFile = false;
+        @Override
+        public int getMaxSampleCount(int byteCount) {
+            return byteCount / Short.BYTES;
+        }
 
-        while (!endOfFile) {
-            try {
-                buffer[2] = input.readShort();
+        @Override
+        public int decode(ByteBuffer input, double[] values, int offset, int length) {
+            int position = input.position();
+            int limit = input.limit();
+            int end = offset + length;
+            int count = offset;
+            while (count < end && position + Short.BYTES <= limit) {
+                short secondDelta = input.getShort(position);
 
-                if (buffer[2] != 32767) {
-                    buffer[1] = buffer[2] + buffer[1];
-                    buffer[0] = buffer[1] + buffer[0];
+                if (secondDelta != ABSOLUTE_VALUE) {
+                    delta += secondDelta;
+                    value += delta;
+                    position += Short.BYTES;
+                } else if (position + ABSOLUTE_VALUE_SHORTS * Short.BYTES <= limit) {
+                    long high = input.getShort(position + Short.BYTES);
+                    int low = input.getInt(position + 2 * Short.BYTES);
+                    value = (high << 32) + low;
+                    delta = 0;
+                    position += ABSOLUTE_VALUE_SHORTS * Short.BYTES;
                 } else {
-                    buffer[0] = (long) input.readShort() << 32;
-                    buffer[0] = input.readInt() + buffer[0];
-                    buffer[1] = 0;
+                    break;
                 }
 
-                values.add(unitConverter.convert(buffer[0] * yScaling + yOffset));
-            } catch (EOFException e) {
-                endOfFile = true;
+                values[count++] = value;
             }
+            input.position(position);
+            return count - offset;
         }
     }
 }
@@ -0,0 +1,163 @@
+package fr.ifpen.allotropeconverters.gc.chemstation.chfile;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads the samples of a .ch file in one sequential pass, a window at a time, into arrays supplied by the caller.<br>
+ * The file is read in blocks and decoded as the windows are filled: memory use does not depend on the length of the
+ * run. The number of samples, which the time axis needs, is known from the size of V179 files; V181 files are scanned
+ * once more on opening to count theirs.<br>
+ * Times and values are those of {@link ChFile#getSignal()}: times in minutes, values in picoampere. Instances are not
+ * thread-safe.
+ */
+public final class ChFileCursor implements Closeable {
+
+    private static final int BLOCK_LENGTH = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer block = ByteBuffer.allocate(BLOCK_LENGTH);
+    private final SampleDecoder decoder;
+    private final SampleTransform transform;
+    private final double startTime;
+    private final double endTime;
+    private final String detector;
+    private final long size;
+    private long index;
+
+    private ChFileCursor(FileChannel channel, ChFile header) throws IOException {
+        this.channel = channel;
+        this.transform = header.getSampleTransform();
+        this.startTime = header.getStartTime();
+        this.endTime = header.getEndTime();
+        this.detector = header.getDetector();
+
+        SampleDecoder counter = header.createSampleDecoder();
+        long dataLength = Math.max(0, channel.size() - ChFileFactory.HEADER_LENGTH);
+        this.size = counter.getSampleSize() > 0 ? dataLength / counter.getSampleSize() : countSamples(counter);
+        this.decoder = header.createSampleDecoder();
+        rewind();
+    }
+
+    static ChFileCursor open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate((int) Math.min(channel.size(), ChFileFactory.HEADER_LENGTH));
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Reads until the header is complete.
+            }
+            return new ChFileCursor(channel, ChFileFactory.create(header.flip(), file));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of samples of the file.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns the index of the next sample read.
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    public double getStartTime() {
+        return startTime;
+    }
+
+    public double getEndTime() {
+        return endTime;
+    }
+
+    public String getDetector() {
+        return detector;
+    }
+
+    /**
+     * Returns the time of the sample of the given index, as {@link ChromatogramSignal#getTime(int)} does.
+     */
+    public double getTime(long sampleIndex) {
+        return startTime + sampleIndex * (endTime - startTime) / size;
+    }
+
+    /**
+     * Fills the arrays with the times and values of the next samples, as many as they both hold, or fewer at the end
+     * of the file.
+     *
+     * @return the number of samples read, or -1 if all were read before
+     * @throws EOFException if the file was shortened since it was opened, once the samples left in it are read
+     */
+    public int read(double[] times, double[] values) throws IOException {
+        int length = (int) Math.min(Math.min(times.length, values.length), size - index);
+        if (length == 0 && index == size) {
+            return -1;
+        }
+
+        int count = 0;
+        while (count < length) {
+            int decoded = decoder.decode(block, values, count, length - count);
+            if (decoded == 0 && !readBlock()) {
+                // The file was shortened since it was opened: the samples decoded so far are returned first.
+                if (count == 0) {
+                    throw new EOFException("File shortened since it was opened, after " + index + " of " + size
+                                           + " samples");
+                }
+                break;
+            }
+            count += decoded;
+        }
+
+        transform.applyInPlace(values, count);
+        for (int i = 0; i < count; i++) {
+            times[i] = getTime(index + i);
+        }
+        index += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private long countSamples(SampleDecoder counter) throws IOException {
+        rewind();
+        double[] scratch = new double[counter.getMaxSampleCount(BLOCK_LENGTH)];
+        long count = 0;
+        do {
+            int decoded;
+            while ((decoded = counter.decode(block, scratch, 0, scratch.length)) > 0) {
+                count += decoded;
+            }
+        } while (readBlock());
+        return count;
+    }
+
+    private void rewind() throws IOException {
+        channel.position(ChFileFactory.HEADER_LENGTH);
+        block.clear().flip();
+    }
+
+    /**
+     * Appends the next bytes of the file to the undecoded ones left in the block.
+     *
+     * @return false at the end of the file
+     */
+    private boolean readBlock() throws IOException {
+        block.compact();
+        int read = channel.read(block);
+        block.flip();
+        return read > 0;
+    }
+}
@@ -0,0 +1,58 @@
+package fr.ifpen.allotropeconverters.gc.chemstation.chfile;
+
+/**
+ * What decoding a .ch file will cost, estimated from its version and size before reading its samples.<br>
+ * Decoding holds the file in memory along with its decoded samples, eight bytes each. V179 files store one
+ * little-endian double per point, so the number of points is exact. V181 files store differences of at least one
+ * short per point, so it is an upper bound: a file is never decoded into more points than estimated.
+ */
+public final class ChFileEstimate {
+
+    private final String version;
+    private final long fileSize;
+    private final long points;
+
+    ChFileEstimate(String version, long fileSize, long points) {
+        this.version = version;
+        this.fileSize = fileSize;
+        this.points = points;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * Returns the number of points of the file, at most: the decoding and serialization work grows with it.
+     */
+    public long getPoints() {
+        return points;
+    }
+
+    /**
+     * Returns the heap the decoding of the file takes at most: the file itself, then its samples.
+     */
+    public long getHeapBytes() {
+        return fileSize + points * Double.BYTES;
+    }
+
+    /**
+     * Returns the read buffer the decoding may leave to the thread running it, reused by the next files it decodes,
+     * at most: the buffer grows geometrically to the size of the file, while larger files than
+     * {@link DecodeContext#MAX_RETAINED_CAPACITY} are read into buffers of their own.
+     */
+    public long getRetainedReadBytes() {
+        return fileSize > DecodeContext.MAX_RETAINED_CAPACITY
+               ? 0
+               : Math.min(2 * fileSize, DecodeContext.MAX_RETAINED_CAPACITY);
+    }
+
+    @Override
+    public String toString() {
+        return "V" + version + ": " + fileSize + " bytes, " + points + " points";
+    }
+}
@@ -1,26 +1,86 @@
 package fr.ifpen.allotropeconverters.gc.chemstation.chfile;
 
-import java.io.File;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
+import static fr.ifpen.allotropeconverters.gc.chemstation.chfile.ReadHelpers.readFile;
 import static fr.ifpen.allotropeconverters.gc.chemstation.chfile.ReadHelpers.readString;
 
 public class ChFileFactory {
 
+    // Samples start at the same position in every supported version.
+    static final int HEADER_LENGTH = 6144;
+    private static final int VERSION_LENGTH = 4; // Length byte and three digits
+
+    /**
+     * Reads and decodes the whole file. The file is read into the reused buffer of the {@link DecodeContext} of the
+     * calling thread, so that decoding allocates little more than the samples.
+     */
     public ChFile getChFile(String filePath) throws IOException {
-        File file = new File(filePath);
-        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
-            String version = readString(input, false);
-
-            switch (version) {
-                case "179":
-                    return new ChFile179(input);
-                case "181":
-                    return new ChFile181(input);
-                default:
-                    throw new IOException("version not supported");
-            }
+        return create(readFile(Path.of(filePath), Long.MAX_VALUE, DecodeContext.current()::getReadBuffer), null);
+    }
+
+    /**
+     * Reads only the header of the file: times, unit and detector are available at once, and samples are decoded on
+     * the first call to {@link ChFile#getSignal()} or {@link ChFile#getValues()}.
+     */
+    public ChFile getLazyChFile(String filePath) throws IOException {
+        Path file = Path.of(filePath);
+        return create(readFile(file, HEADER_LENGTH, DecodeContext.current()::getReadBuffer), file);
+    }
+
+    /**
+     * Opens a cursor over the samples of the file, which decodes them a window at a time as they are read, in constant
+     * memory.
+     */
+    public ChFileCursor openCursor(String filePath) throws IOException {
+        return ChFileCursor.open(Path.of(filePath));
+    }
+
+    /**
+     * Estimates the cost of decoding the file from its version and size, reading its first bytes only.
+     */
+    public ChFileEstimate estimate(String filePath) throws IOException {
+        Path file = Path.of(filePath);
+        String version = readVersion(readFile(file, VERSION_LENGTH, DecodeContext.current()::getReadBuffer));
+        long fileSize = Files.size(file);
+        long dataLength = Math.max(0, fileSize - HEADER_LENGTH);
+
+        switch (version) {
+            case "179":
+                return new ChFileEstimate(version, fileSize, dataLength / Double.BYTES);
+            case "181":
+                return new ChFileEstimate(version, fileSize, dataLength / Short.BYTES);
+            default:
+                throw new IOException("version not supported");
+        }
+    }
+
+    /**
+     * @param lazyFile if not null, the input only holds the header, and samples are read from this file when needed
+     */
+    static ChFile create(ByteBuffer input, Path lazyFile) throws IOException {
+        String version = readVersion(input);
+
+        switch (version) {
+            case "179":
+                return new ChFile179(input, lazyFile);
+            case "181":
+                return new ChFile181(input, lazyFile);
+            default:
+                throw new IOException("version not supported");
+        }
+    }
+
+    private static String readVersion(ByteBuffer input) throws EOFException {
+        try {
+            return readString(input, false);
+        } catch (BufferUnderflowException e) {
+            throw new EOFException("Truncated .ch file");
         }
     }
 }
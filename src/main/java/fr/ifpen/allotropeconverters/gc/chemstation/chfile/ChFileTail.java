@@ -0,0 +1,218 @@
+package fr.ifpen.allotropeconverters.gc.chemstation.chfile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows a .ch file while the instrument writes it, publishing its samples as they are appended, so that a trace can
+ * be displayed during the run.<br>
+ * Each poll reads the bytes appended since the previous one, and only those: the decoder keeps the state of the
+ * encoding, and the bytes of an incomplete sample until it is completed. Samples are thus published at most one poll
+ * interval after they are written, whatever the length of the run. V179 and V181 files can be tailed.<br>
+ * Subscribers receive {@link SampleChunk}s in order. A subscriber whose buffer is full holds up the polls until it
+ * requests more, so that no sample is ever dropped. Errors, such as a file truncated or of an unsupported version,
+ * end the subscriptions exceptionally.
+ */
+public final class ChFileTail implements Flow.Publisher<SampleChunk>, Closeable {
+
+    private static final int MAX_READ_LENGTH = 1 << 20; // Bounds the memory taken by a file already long when tailed
+
+    private final Path file;
+    private final SubmissionPublisher<SampleChunk> publisher = new SubmissionPublisher<>();
+    private final ScheduledExecutorService poller;
+    // Held while polling, submissions included, so that chunks are published in order. The getters do not take it: a
+    // subscriber calling them while a poll waits for its buffer to drain must not block.
+    private final Object pollLock = new Object();
+    private SampleDecoder decoder;
+    private SampleTransform transform;
+    private volatile String detector;
+    private long position = ChFileFactory.HEADER_LENGTH;
+    private ByteBuffer incompleteSample = ByteBuffer.allocate(0);
+    private double[] decodedSamples = new double[0];
+    private volatile long sampleCount;
+    private boolean closed;
+
+    public ChFileTail(Path file) {
+        this.file = file;
+        this.poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "gc2asm-ch-tail");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Polls the file at the given interval, from a thread of its own, until closed. The file does not need to exist
+     * yet.
+     */
+    public void start(Duration pollInterval) {
+        poller.scheduleWithFixedDelay(this::pollQuietly, 0, pollInterval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super SampleChunk> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Reads the samples appended since the previous poll and publishes them. Files without a complete header yet are
+     * left for a later poll.
+     * Polls wait for full subscriber buffers to drain: subscribers must not poll themselves.
+     *
+     * @return the number of samples published
+     */
+    public int poll() throws IOException {
+        synchronized (pollLock) {
+            return pollLocked();
+        }
+    }
+
+    private int pollLocked() throws IOException {
+        if (closed) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (decoder == null) {
+                if (size < ChFileFactory.HEADER_LENGTH) {
+                    return 0;
+                }
+                readHeader(channel);
+            }
+            if (size < position) {
+                throw new IOException("File truncated while tailed: " + file);
+            }
+
+            int published = 0;
+            while (position < size) {
+                int length = (int) Math.min(size - position, MAX_READ_LENGTH);
+                ByteBuffer input = ByteBuffer.allocate(incompleteSample.remaining() + length).put(incompleteSample);
+                int read = read(channel, input);
+                published += publish(input.flip());
+                if (read < length) {
+                    break; // Truncated meanwhile: the next poll reports it.
+                }
+            }
+            return published;
+        } catch (NoSuchFileException e) {
+            if (decoder != null) {
+                throw e;
+            }
+            return 0; // Not created yet
+        }
+    }
+
+    /**
+     * Returns the detector named in the header, or null if the header is not written yet.
+     */
+    public String getDetector() {
+        return detector;
+    }
+
+    /**
+     * Returns the number of samples published so far.
+     */
+    public long getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Stops polling, publishes the samples appended since the last poll, then completes the subscriptions, exceptionally
+     * if that last poll fails.
+     */
+    @Override
+    public void close() throws IOException {
+        poller.shutdown();
+        try {
+            poller.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            poll();
+        } catch (IOException | RuntimeException | Error e) {
+            fail(e);
+            throw e;
+        }
+        synchronized (pollLock) {
+            closed = true;
+        }
+        publisher.close();
+    }
+
+    private void pollQuietly() {
+        try {
+            poll();
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+            poller.shutdown();
+        }
+    }
+
+    private void fail(Throwable failure) {
+        synchronized (pollLock) {
+            closed = true;
+        }
+        publisher.closeExceptionally(failure);
+    }
+
+    /**
+     * Reads from the current position until the buffer is full or the end of the file is reached.
+     *
+     * @return the number of bytes read
+     */
+    private int read(FileChannel channel, ByteBuffer buffer) throws IOException {
+        int total = 0;
+        int read;
+        while (buffer.hasRemaining() && (read = channel.read(buffer, position)) >= 0) {
+            position += read;
+            total += read;
+        }
+        return total;
+    }
+
+    private void readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(ChFileFactory.HEADER_LENGTH);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+            // Reads until the header is complete.
+        }
+        ChFile chFile = ChFileFactory.create(header.flip(), file);
+        decoder = chFile.createSampleDecoder();
+        transform = chFile.getSampleTransform();
+        detector = chFile.getDetector();
+    }
+
+    /**
+     * Decodes the complete samples of the input and publishes them, keeping a trailing incomplete one for the next
+     * read.
+     */
+    private int publish(ByteBuffer input) {
+        int maxSampleCount = decoder.getMaxSampleCount(input.remaining());
+        if (decodedSamples.length < maxSampleCount) {
+            decodedSamples = new double[maxSampleCount];
+        }
+        int count = decoder.decode(input, decodedSamples, 0, decodedSamples.length);
+        incompleteSample = ByteBuffer.allocate(input.remaining()).put(input).flip();
+        if (count == 0) {
+            return 0;
+        }
+
+        double[] values = Arrays.copyOf(decodedSamples, count);
+        transform.applyInPlace(values);
+        publisher.submit(new SampleChunk(sampleCount, values));
+        sampleCount += count;
+        return count;
+    }
+}
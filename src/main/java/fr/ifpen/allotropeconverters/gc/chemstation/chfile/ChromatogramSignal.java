@@ -0,0 +1,115 @@
+package fr.ifpen.allotropeconverters.gc.chemstation.chfile;
+
+/**
+ * Samples decoded from a .ch file, kept as primitives, with the time range they were acquired on.<br>
+ * Times are in minutes, values in picoampere.
+ */
+public final class ChromatogramSignal {
+
+    private final double[] values;
+    private final double startTime;
+    private final double endTime;
+    private final double resolution;
+
+    ChromatogramSignal(double[] values, double startTime, double endTime) {
+        this(values, startTime, endTime, 0);
+    }
+
+    /**
+     * @param resolution current of one step of the raw samples, in picoampere, or 0 if unknown
+     */
+    ChromatogramSignal(double[] values, double startTime, double endTime, double resolution) {
+        this.values = values;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.resolution = resolution;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public double getValue(int index) {
+        return values[index];
+    }
+
+    public double getStartTime() {
+        return startTime;
+    }
+
+    public double getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * Returns the current of one step of the raw samples of the file, given by its scaling, in picoampere, or 0 if
+     * unknown.
+     */
+    public double getResolution() {
+        return resolution;
+    }
+
+    /**
+     * Returns the time between two consecutive samples.
+     */
+    public double getStep() {
+        return (endTime - startTime) / values.length;
+    }
+
+    /**
+     * Returns the time of the given index on the time axis, which goes from the start time (index 0) to the end time
+     * (index {@link #size()}).
+     */
+    public double getTime(int index) {
+        return startTime + index * (endTime - startTime) / values.length;
+    }
+
+    /**
+     * Returns a read-only view of the values. Elements are boxed one at a time, when they are read.
+     */
+    public DoubleListView getValues() {
+        return new DoubleListView(values.length) {
+            @Override
+            public double getDouble(int index) {
+                return values[index];
+            }
+        };
+    }
+
+    /**
+     * Returns a read-only view of the time axis, from the start time to the end time included, so it holds
+     * {@link #size()} + 1 elements. Elements are computed and boxed one at a time, when they are read.
+     */
+    public DoubleListView getTimes() {
+        return new DoubleListView(values.length + 1) {
+            @Override
+            public double getDouble(int index) {
+                return getTime(index);
+            }
+        };
+    }
+
+    /**
+     * Returns a read-only view of the values at the given indices, for instance those kept by a decimation.
+     */
+    public DoubleListView getValues(int[] indices) {
+        return new DoubleListView(indices.length) {
+            @Override
+            public double getDouble(int index) {
+                return values[indices[index]];
+            }
+        };
+    }
+
+    /**
+     * Returns a read-only view of the times of the given indices, for instance those kept by a decimation.
+     */
+    public DoubleListView getTimes(int[] indices) {
+        return new DoubleListView(indices.length) {
+            @Override
+            public double getDouble(int index) {
+                return getTime(indices[index]);
+            }
+        };
+    }
+}
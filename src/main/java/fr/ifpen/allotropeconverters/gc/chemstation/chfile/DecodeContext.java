@@ -0,0 +1,43 @@
+package fr.ifpen.allotropeconverters.gc.chemstation.chfile;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Buffers reused by the decoding of successive .ch files on the same thread, so that a long batch reads every file into
+ * the same memory instead of allocating a copy of each.<br>
+ * Only the read buffer is reused: the decoded samples are referenced by the documents built from them, and outlive
+ * the decoding. Buffers grow to the largest file read, up to {@link #MAX_RETAINED_CAPACITY}: larger files are read
+ * into buffers of their own, so that a single huge run does not pin its size on every thread of a pool.<br>
+ * Each thread has its own context, which nothing but the decoding running on that thread may use.
+ */
+final class DecodeContext {
+
+    static final int MAX_RETAINED_CAPACITY = 16 << 20;
+
+    private static final ThreadLocal<DecodeContext> CONTEXTS = ThreadLocal.withInitial(DecodeContext::new);
+
+    private ByteBuffer readBuffer = ByteBuffer.allocate(0);
+
+    private DecodeContext() {
+    }
+
+    static DecodeContext current() {
+        return CONTEXTS.get();
+    }
+
+    /**
+     * Returns a big-endian buffer with room for the given number of bytes, positioned at 0 and limited to them. The
+     * buffer is only valid until the next call.
+     */
+    ByteBuffer getReadBuffer(int capacity) {
+        if (capacity > MAX_RETAINED_CAPACITY) {
+            return ByteBuffer.allocate(capacity);
+        }
+        if (readBuffer.capacity() < capacity) {
+            // Grows geometrically, so that files of increasing sizes do not each cause an allocation.
+            readBuffer = ByteBuffer.allocate(Math.max(capacity, Math.min(2 * readBuffer.capacity(),
+                                                                         MAX_RETAINED_CAPACITY)));
+        }
+        return readBuffer.clear().limit(capacity);
+    }
+}
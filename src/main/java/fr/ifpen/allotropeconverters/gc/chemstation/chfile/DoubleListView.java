@@ -0,0 +1,69 @@
+package fr.ifpen.allotropeconverters.gc.chemstation.chfile;
+
+import java.util.AbstractList;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * Read-only list of doubles computed or read from primitives on demand.<br>
+ * {@link #getDouble(int)} gives access to the elements without boxing them. Views may be rounded to a number of
+ * decimals, which serializers can write without formatting a double.
+ */
+public abstract class DoubleListView extends AbstractList<Double> implements RandomAccess {
+
+    private final int size;
+
+    protected DoubleListView(int size) {
+        this.size = size;
+    }
+
+    public abstract double getDouble(int index);
+
+    /**
+     * Returns the number of decimals the elements are rounded to, or -1 if they are not rounded.
+     */
+    public int getFractionDigits() {
+        return -1;
+    }
+
+    /**
+     * Returns a view of the elements rounded to the given number of decimals: the doubles closest to the decimal
+     * numbers. Elements too large to be rounded are left as is.
+     *
+     * @param fractionDigits number of decimals, from 0 to 17, or -1 to leave the elements as they are
+     */
+    public DoubleListView withFractionDigits(int fractionDigits) {
+        if (fractionDigits < -1 || fractionDigits > 17) {
+            throw new IllegalArgumentException("Unsupported number of decimals: " + fractionDigits);
+        }
+        if (fractionDigits < 0 || fractionDigits == getFractionDigits()) {
+            return this;
+        }
+        DoubleListView elements = this;
+        double scale = Math.pow(10, fractionDigits);
+        return new DoubleListView(size) {
+            @Override
+            public double getDouble(int index) {
+                double value = elements.getDouble(index);
+                double scaled = value * scale;
+                // Beyond 2^53, doubles are integers: there is nothing left to round.
+                return Math.abs(scaled) < 0x1p53 ? Math.round(scaled) / scale : value;
+            }
+
+            @Override
+            public int getFractionDigits() {
+                return fractionDigits;
+            }
+        };
+    }
+
+    @Override
+    public Double get(int index) {
+        return getDouble(Objects.checkIndex(index, size));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -1,52 +1,78 @@
 package fr.ifpen.allotropeconverters.gc.chemstation.chfile;
 
-import java.io.DataInput;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntFunction;
 
 class ReadHelpers {
 
     private ReadHelpers() {}
 
-    static String readString(DataInput input, boolean isUTF16) throws IOException {
-        int stringLength = input.readByte();
+    /**
+     * Reads the whole file into a heap buffer with a single channel, so that headers and samples are decoded
+     * from memory instead of one system call per byte.<br>
+     * The buffer is big-endian like the .ch metadata; sample decoders pick their own order on views.
+     */
+    static ByteBuffer readFile(Path path) throws IOException {
+        return readFile(path, Long.MAX_VALUE);
+    }
+
+    /**
+     * Reads at most the given number of bytes from the start of the file, for instance its header only.
+     */
+    static ByteBuffer readFile(Path path, long maxLength) throws IOException {
+        return readFile(path, maxLength, ByteBuffer::allocate);
+    }
+
+    /**
+     * Reads at most the given number of bytes from the start of the file into a buffer of the given factory, such as
+     * the reused one of a {@link DecodeContext}.
+     */
+    static ByteBuffer readFile(Path path, long maxLength, IntFunction<ByteBuffer> bufferFactory) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = Math.min(channel.size(), maxLength);
+            if (length > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Input too large to parse");
+            }
+
+            ByteBuffer buffer = bufferFactory.apply((int) length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+            }
+            return buffer.flip();
+        }
+    }
+
+    static String readString(ByteBuffer input, boolean isUTF16) {
+        int stringLength = input.get();
 
         StringBuilder stringBuilder = new StringBuilder();
 
         for (int i = 0; i < stringLength; i++) {
             if (isUTF16) {
-                ByteBuffer buffer = ByteBuffer.allocate(2);
-                buffer.order(ByteOrder.LITTLE_ENDIAN);
-                buffer.put(input.readByte());
-                buffer.put(input.readByte());
-                stringBuilder.append(buffer.getChar(0));
+                int low = input.get() & 0xFF;
+                int high = input.get() & 0xFF;
+                stringBuilder.append((char) (high << 8 | low));
             } else {
-                stringBuilder.append((char) input.readByte());
+                stringBuilder.append((char) input.get());
             }
         }
 
         return stringBuilder.toString();
     }
 
-    static String readStringAtPosition(RandomAccessFile input, long position, boolean isUtf16) throws IOException {
-        input.seek(position);
+    static String readStringAtPosition(ByteBuffer input, int position, boolean isUtf16) {
+        input.position(position);
         return readString(input, isUtf16);
     }
 
-    static Double readLittleEndianDouble(DataInput input) throws IOException {
-        ByteBuffer byteBuffer = ByteBuffer.allocate(8);
-        byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
-        for (int i = 0; i < 8; i++) {
-            byteBuffer.put(input.readByte());
-        }
-        return byteBuffer.getDouble(0);
-    }
-
-    static Float readMetadataTime(RandomAccessFile input, long position) throws IOException {
-        input.seek(position);
-        float rawMetadataTime = input.readFloat();
+    static Float readMetadataTime(ByteBuffer input, int position) {
+        float rawMetadataTime = input.getFloat(position);
         return rawMetadataTime / 60000;
     }
 }
@@ -0,0 +1,40 @@
+package fr.ifpen.allotropeconverters.gc.chemstation.chfile;
+
+/**
+ * Consecutive samples appended to a .ch file being written, converted to picoampere, as published by a
+ * {@link ChFileTail}.
+ */
+public final class SampleChunk {
+
+    private final long firstIndex;
+    private final double[] values;
+
+    SampleChunk(long firstIndex, double[] values) {
+        this.firstIndex = firstIndex;
+        this.values = values;
+    }
+
+    /**
+     * Returns the index of the first sample of the chunk in the run: chunks follow each other without gaps.
+     */
+    public long getFirstIndex() {
+        return firstIndex;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public double getValue(int index) {
+        return values[index];
+    }
+
+    public DoubleListView getValues() {
+        return new DoubleListView(values.length) {
+            @Override
+            public double getDouble(int index) {
+                return values[index];
+            }
+        };
+    }
+}
@@ -0,0 +1,31 @@
+package fr.ifpen.allotropeconverters.gc.chemstation.chfile;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes the raw samples of a .ch file, from its data section, possibly received in several parts: instances keep the
+ * state the encoding carries from one sample to the next.
+ */
+interface SampleDecoder {
+
+    /**
+     * Returns the largest number of samples the given number of bytes can hold.
+     */
+    int getMaxSampleCount(int byteCount);
+
+    /**
+     * Returns the size of every sample, in bytes, or 0 if it varies from one sample to the next.
+     */
+    default int getSampleSize() {
+        return 0;
+    }
+
+    /**
+     * Decodes at most {@code length} complete samples from the position of the input into the values, from the offset.
+     * The input is left positioned after the last sample decoded: a trailing incomplete sample is left to be completed
+     * by the next part of the data.
+     *
+     * @return the number of samples decoded
+     */
+    int decode(ByteBuffer input, double[] values, int offset, int length);
+}
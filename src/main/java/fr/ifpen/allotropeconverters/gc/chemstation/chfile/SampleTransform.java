@@ -0,0 +1,76 @@
+package fr.ifpen.allotropeconverters.gc.chemstation.chfile;
+
+import javax.measure.converter.UnitConverter;
+
+/**
+ * Converts the raw samples of a .ch file to picoampere: {@code raw * yScaling + yOffset}, then the unit conversion.<br>
+ * Linear unit conversions, which are all the conversions between current units, are folded with the file scaling into
+ * a single multiply-add. Other conversions fall back to the generic converter.
+ */
+final class SampleTransform {
+
+    private final double scale;
+    private final double offset;
+    private final UnitConverter unitConverter; // Null when folded into scale and offset
+
+    private SampleTransform(double scale, double offset, UnitConverter unitConverter) {
+        this.scale = scale;
+        this.offset = offset;
+        this.unitConverter = unitConverter;
+    }
+
+    static SampleTransform of(double yScaling, double yOffset, UnitConverter unitConverter) {
+        if (unitConverter == UnitConverter.IDENTITY) {
+            return new SampleTransform(yScaling, yOffset, null);
+        }
+        if (unitConverter.isLinear()) {
+            // A linear converter is a multiplication: convert(raw * s + o) = raw * convert(s) + convert(o).
+            return new SampleTransform(unitConverter.convert(yScaling), unitConverter.convert(yOffset), null);
+        }
+        return new SampleTransform(yScaling, yOffset, unitConverter);
+    }
+
+    boolean isFused() {
+        return unitConverter == null;
+    }
+
+    /**
+     * Returns the difference between the converted values of two consecutive raw samples, or 0 if it depends on the
+     * samples, which non-linear conversions do.
+     */
+    double getResolution() {
+        return unitConverter == null ? Math.abs(scale) : 0;
+    }
+
+    double apply(double raw) {
+        double value = raw * scale + offset;
+        return unitConverter == null ? value : unitConverter.convert(value);
+    }
+
+    /**
+     * Replaces raw samples with converted values.
+     */
+    void applyInPlace(double[] samples) {
+        applyInPlace(samples, samples.length);
+    }
+
+    /**
+     * Replaces the first {@code length} raw samples with converted values.
+     */
+    void applyInPlace(double[] samples, int length) {
+        if (unitConverter == null) {
+            applyAffine(samples, length, scale, offset);
+        } else {
+            for (int i = 0; i < length; i++) {
+                samples[i] = unitConverter.convert(samples[i] * scale + offset);
+            }
+        }
+    }
+
+    // Kept as a separate counted loop over locals, which the JIT vectorizes.
+    private static void applyAffine(double[] samples, int length, double scale, double offset) {
+        for (int i = 0; i < length; i++) {
+            samples[i] = samples[i] * scale + offset;
+        }
+    }
+}
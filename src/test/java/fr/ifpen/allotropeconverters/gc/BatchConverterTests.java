@@ -0,0 +1,160 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+class BatchConverterTests {
+
+    @TempDir
+    Path temporaryFolder;
+
+    @Test
+    void convertsEveryFolderAndReportsFailures() throws Exception {
+        Path root = temporaryFolder.resolve("archive");
+        Files.createDirectories(root.resolve("2022"));
+        TestFolders.copyFolder(Path.of("src/test/resources/V179.D"), root.resolve("2022/run1.D"));
+        TestFolders.copyFolder(Path.of("src/test/resources/V179.D"), root.resolve("broken.D"));
+        Files.writeString(root.resolve("broken.D/FID1A.ch"), "not a chromatogram", StandardCharsets.US_ASCII);
+        Path outDir = temporaryFolder.resolve("out");
+
+        BatchReport report = new GcToAllotropeJsonConverter().convertAll(root, outDir, BatchOptions.defaults()
+                                                                                                  .withParallelism(2)
+                                                                                                  .withMaxInFlight(1));
+
+        List<BatchReport.FolderResult> results = report.getResults();
+        Assertions.assertEquals(2, results.size());
+        Assertions.assertEquals(1, report.getSucceededCount());
+        Assertions.assertEquals(1, report.getFailedCount());
+
+        BatchReport.FolderResult success = results.get(0);
+        Assertions.assertEquals(outDir.resolve("2022/run1.json"), success.getOutput());
+        Assertions.assertTrue(Files.size(success.getOutput()) > 0);
+        try (Stream<Path> outputs = Files.list(outDir.resolve("2022"))) {
+            Assertions.assertEquals(1, outputs.count());
+        }
+
+        BatchReport.FolderResult failure = results.get(1);
+        Assertions.assertEquals(root.resolve("broken.D"), failure.getFolder());
+        Assertions.assertNotNull(failure.getError());
+        Assertions.assertFalse(Files.exists(outDir.resolve("broken.json")));
+    }
+
+    @Test
+    void compressedOutputsDecompressToDocuments() throws Exception {
+        Path root = temporaryFolder.resolve("archive");
+        TestFolders.copyFolder(Path.of("src/test/resources/V179.D"), Files.createDirectories(root).resolve("run1.D"));
+        Path outDir = temporaryFolder.resolve("out");
+
+        BatchReport report = new GcToAllotropeJsonConverter().convertAll(root, outDir, BatchOptions.defaults()
+                                                                                                  .withCompression(true));
+
+        Path output = report.getResults().get(0).getOutput();
+        Assertions.assertEquals(outDir.resolve("run1.json.gz"), output);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(output))) {
+            Assertions.assertEquals(new GcToAllotropeJsonConverter().convertFile("src/test/resources/V179.D"),
+                                    new ObjectMapper().readTree(in));
+        }
+    }
+
+    @Test
+    void unchangedFoldersAreCopiedFromCache() throws Exception {
+        Path root = temporaryFolder.resolve("archive");
+        TestFolders.copyFolder(Path.of("src/test/resources/V179.D"), Files.createDirectories(root).resolve("run1.D"));
+        TestFolders.copyFolder(Path.of("src/test/resources/V179.D"), root.resolve("run2.D"));
+        Path outDir = temporaryFolder.resolve("out");
+        GcToAllotropeJsonConverter converter = new GcToAllotropeJsonConverter();
+
+        try (ConversionCache cache = ConversionCache.open(temporaryFolder.resolve("cache"), 1L << 30)) {
+            BatchOptions options = BatchOptions.defaults().withCache(cache);
+            BatchReport firstReport = converter.convertAll(root, outDir, options);
+            // Both folders have the same inputs: they share an entry.
+            Assertions.assertEquals(2, firstReport.getSucceededCount());
+            Assertions.assertEquals(1, cache.getEntryCount());
+
+            String firstOutput = Files.readString(outDir.resolve("run1.json"));
+            // Changes the lowest byte of a sample
+            Path chFile = root.resolve("run2.D/FID1A.ch");
+            byte[] chFileBytes = Files.readAllBytes(chFile);
+            chFileBytes[6144] ^= 1;
+            Files.write(chFile, chFileBytes);
+            BatchReport secondReport = converter.convertAll(root, outDir, options);
+
+            Assertions.assertEquals(2, secondReport.getSucceededCount());
+            Assertions.assertEquals(2, cache.getEntryCount());
+            Assertions.assertTrue(secondReport.getResults().get(0).isCached());
+            Assertions.assertFalse(secondReport.getResults().get(1).isCached());
+            Assertions.assertEquals(firstOutput, Files.readString(outDir.resolve("run1.json")));
+        }
+    }
+
+    @Test
+    void unreadableRootIsReported() throws Exception {
+        Path root = temporaryFolder.resolve("missing");
+
+        BatchReport report = new GcToAllotropeJsonConverter().convertAll(root, temporaryFolder.resolve("out"),
+                                                                         BatchOptions.defaults());
+
+        Assertions.assertEquals(1, report.getFailedCount());
+        Assertions.assertEquals(root, report.getResults().get(0).getFolder());
+        Assertions.assertInstanceOf(NoSuchFileException.class, report.getResults().get(0).getError());
+        Assertions.assertThrows(NoSuchFileException.class, () -> BatchConverter.findDFolders(root));
+    }
+
+    @Test
+    void errorsAreReportedAndFatalOnesRethrown() {
+        Path folder = Path.of("src/test/resources/V179.D");
+        Path output = temporaryFolder.resolve("V179.json");
+
+        BatchReport.FolderResult result = BatchConverter.convertFolder(new FailingConverter(new AssertionError()),
+                                                                       folder, output, null);
+        Assertions.assertInstanceOf(AssertionError.class, result.getError().getCause());
+
+        List<BatchReport.FolderResult> results = new ArrayList<>();
+        Assertions.assertThrows(OutOfMemoryError.class, () -> BatchConverter.convertFolder(
+                new FailingConverter(new OutOfMemoryError()), folder, output, null, results::add));
+        Assertions.assertEquals(1, results.size());
+        Assertions.assertInstanceOf(OutOfMemoryError.class, results.get(0).getError().getCause());
+        Assertions.assertFalse(Files.exists(output));
+    }
+
+    @Test
+    void findsOnlyTopLevelDFolders() throws IOException {
+        Files.createDirectories(temporaryFolder.resolve("a.D/DA.M"));
+        Files.createDirectories(temporaryFolder.resolve("b/c.d"));
+        Files.createDirectories(temporaryFolder.resolve("b/other"));
+
+        List<Path> folders = BatchConverter.findDFolders(temporaryFolder);
+
+        Assertions.assertEquals(2, folders.size());
+        Assertions.assertTrue(folders.contains(temporaryFolder.resolve("a.D")));
+        Assertions.assertTrue(folders.contains(temporaryFolder.resolve("b/c.d")));
+    }
+
+    private static final class FailingConverter extends GcToAllotropeJsonConverter {
+
+        private final Error error;
+
+        FailingConverter(Error error) {
+            this.error = error;
+        }
+
+        @Override
+        public void convertTo(Path dFolder, OutputStream out) {
+            throw error;
+        }
+    }
+}
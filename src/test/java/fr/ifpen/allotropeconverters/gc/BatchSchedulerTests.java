@@ -0,0 +1,117 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import fr.ifpen.allotropeconverters.gc.chemstation.chfile.ChFileFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+class BatchSchedulerTests {
+
+    private static BatchScheduler.Job job(String folder, long heapBytes) {
+        return new BatchScheduler.Job(Path.of(folder), heapBytes);
+    }
+
+    @Test
+    void smallFoldersFillTheBudgetLeftByLargeOnes() throws Exception {
+        BatchScheduler.Job small1 = job("small1.D", 10);
+        BatchScheduler.Job large1 = job("large1.D", 70);
+        BatchScheduler.Job small2 = job("small2.D", 10);
+        BatchScheduler.Job large2 = job("large2.D", 60);
+        BatchScheduler scheduler = new BatchScheduler(List.of(small1, large1, small2, large2), 100, 4);
+
+        Assertions.assertSame(large1, scheduler.admit());
+        Assertions.assertSame(small1, scheduler.admit()); // large2 does not fit
+        Assertions.assertSame(small2, scheduler.admit());
+        Assertions.assertEquals(90, scheduler.getHeapInUse());
+
+        CompletableFuture<BatchScheduler.Job> next = CompletableFuture.supplyAsync(() -> {
+            try {
+                return scheduler.admit();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        Assertions.assertFalse(next.isDone());
+
+        scheduler.release(large1);
+        Assertions.assertSame(large2, next.get(10, TimeUnit.SECONDS));
+        Assertions.assertEquals(80, scheduler.getHeapInUse());
+        scheduler.release(small1);
+        scheduler.release(small2);
+        scheduler.release(large2);
+        Assertions.assertNull(scheduler.admit());
+    }
+
+    @Test
+    void smallFoldersStartAlongsideLargeOnesWhenTheBudgetIsAmple() throws Exception {
+        BatchScheduler.Job large1 = job("large1.D", 70);
+        BatchScheduler.Job large2 = job("large2.D", 60);
+        BatchScheduler.Job large3 = job("large3.D", 50);
+        BatchScheduler.Job small1 = job("small1.D", 10);
+        BatchScheduler.Job small2 = job("small2.D", 5);
+        BatchScheduler scheduler = new BatchScheduler(List.of(large1, small1, large2, small2, large3), 1000, 2);
+
+        Assertions.assertSame(large1, scheduler.admit());
+        Assertions.assertSame(small2, scheduler.admit());
+        scheduler.release(small2);
+        Assertions.assertSame(large2, scheduler.admit());
+        scheduler.release(large1);
+        Assertions.assertSame(small1, scheduler.admit());
+        scheduler.release(small1);
+        Assertions.assertSame(large3, scheduler.admit());
+    }
+
+    @Test
+    void readBuffersKeptByThreadsAreReservedPerFolderInFlight() throws Exception {
+        BatchScheduler.Job first = new BatchScheduler.Job(Path.of("first.D"), 30, 20);
+        BatchScheduler.Job second = new BatchScheduler.Job(Path.of("second.D"), 30, 10);
+        BatchScheduler.Job third = new BatchScheduler.Job(Path.of("third.D"), 30, 10);
+        // 40 of the budget are kept for the read buffers of two threads: two folders of 30 do not fit in the 50 left.
+        BatchScheduler scheduler = new BatchScheduler(List.of(first, second, third), 90, 2);
+
+        Assertions.assertSame(first, scheduler.admit());
+        CompletableFuture<BatchScheduler.Job> next = CompletableFuture.supplyAsync(() -> {
+            try {
+                return scheduler.admit();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+        Assertions.assertFalse(next.isDone());
+
+        scheduler.release(first);
+        Assertions.assertSame(second, next.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void folderOverTheBudgetIsConvertedAlone() throws Exception {
+        BatchScheduler.Job huge = job("huge.D", 500);
+        BatchScheduler.Job small = job("small.D", 10);
+        BatchScheduler scheduler = new BatchScheduler(List.of(small, huge), 100, 4);
+
+        Assertions.assertSame(huge, scheduler.admit());
+        scheduler.release(huge);
+        Assertions.assertSame(small, scheduler.admit());
+    }
+
+    @Test
+    void estimateCountsTheFileAndItsDecodedSamples() {
+        BatchScheduler.Job job = BatchScheduler.estimate(Path.of("src/test/resources/V179.D"), new ChFileFactory(), false);
+        BatchScheduler.Job compressedJob = BatchScheduler.estimate(Path.of("src/test/resources/V179.D"), new ChFileFactory(),
+                                                                   true);
+
+        // 6144 bytes of header, then 71840 doubles read and decoded
+        long chFileHeap = 6144 + 71840 * 8 + 71840 * 8;
+        Assertions.assertEquals(BatchScheduler.FOLDER_OVERHEAD + chFileHeap, job.getHeapBytes());
+        // The read buffer may grow to twice the file
+        Assertions.assertEquals(2 * (6144 + 71840 * 8), job.getRetainedReadBytes());
+        Assertions.assertEquals(job.getHeapBytes() + ParallelGzipOutputStream.MAX_BUFFERED_BYTES,
+                                compressedJob.getHeapBytes());
+    }
+}
@@ -0,0 +1,162 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+class ConversionCacheTests {
+
+    @TempDir
+    Path temporaryFolder;
+
+    private Path writeDocument(String name, int size) throws IOException {
+        return Files.writeString(temporaryFolder.resolve(name), "x".repeat(size), StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    void keyChangesWithInputsAndSettings() throws IOException {
+        Path folder = temporaryFolder.resolve("run.D");
+        TestFolders.copyFolder(Path.of("src/test/resources/V179.D"), folder);
+
+        try (ConversionCache cache = ConversionCache.open(temporaryFolder.resolve("cache"), 1 << 20)) {
+            String key = cache.computeKey(folder, "settings");
+            Assertions.assertEquals(key, cache.computeKey(folder, "settings"));
+            Assertions.assertNotEquals(key, cache.computeKey(folder, "other settings"));
+
+            Files.writeString(folder.resolve("acq.txt"), "changed", StandardCharsets.UTF_16);
+            Assertions.assertNotEquals(key, cache.computeKey(folder, "settings"));
+        }
+    }
+
+    @Test
+    void converterVersionIdentifiesTheBuild() {
+        // Tests load the converter from its class directory, which has no manifest.
+        Assertions.assertTrue(ConversionCache.getConverterVersion().matches("development\\+[0-9a-f]{64}"));
+    }
+
+    @Test
+    void entriesSurviveReopening() throws IOException {
+        Path cacheDirectory = temporaryFolder.resolve("cache");
+        Path document = writeDocument("document.json", 100);
+        String key = "ab".repeat(32);
+
+        try (ConversionCache cache = ConversionCache.open(cacheDirectory, 1 << 20)) {
+            Assertions.assertFalse(cache.copyTo(key, temporaryFolder.resolve("miss.json")));
+            cache.put(key, document);
+            Assertions.assertThrows(IOException.class, () -> ConversionCache.open(cacheDirectory, 1 << 20));
+        }
+
+        try (ConversionCache cache = ConversionCache.open(cacheDirectory, 1 << 20)) {
+            Path copy = temporaryFolder.resolve("copy.json");
+            Assertions.assertTrue(cache.copyTo(key, copy));
+            Assertions.assertEquals(Files.readString(document), Files.readString(copy));
+            Assertions.assertEquals(100, cache.getSize());
+        }
+    }
+
+    @Test
+    void leastRecentlyUsedEntriesAreEvicted() throws IOException {
+        Path cacheDirectory = temporaryFolder.resolve("cache");
+        String first = "01".repeat(32);
+        String second = "02".repeat(32);
+        String third = "03".repeat(32);
+
+        try (ConversionCache cache = ConversionCache.open(cacheDirectory, 250)) {
+            cache.put(first, writeDocument("first.json", 100));
+            cache.put(second, writeDocument("second.json", 100));
+            Assertions.assertTrue(cache.copyTo(first, temporaryFolder.resolve("copy.json")));
+            cache.put(third, writeDocument("third.json", 100));
+
+            Assertions.assertEquals(2, cache.getEntryCount());
+            Assertions.assertEquals(200, cache.getSize());
+        }
+
+        try (ConversionCache cache = ConversionCache.open(cacheDirectory, 250)) {
+            Path copy = temporaryFolder.resolve("copy.json");
+            Assertions.assertTrue(cache.copyTo(first, copy));
+            Assertions.assertFalse(cache.copyTo(second, copy));
+            Assertions.assertTrue(cache.copyTo(third, copy));
+        }
+    }
+
+    @Test
+    void keysOtherThanComputedOnesAreRejected() throws IOException {
+        Path document = writeDocument("document.json", 100);
+        Path copy = temporaryFolder.resolve("copy.json");
+
+        try (ConversionCache cache = ConversionCache.open(temporaryFolder.resolve("cache"), 1 << 20)) {
+            for (String key : new String[]{"a", "../../../escaped", "../" + "ab".repeat(31), "AB".repeat(32)}) {
+                Assertions.assertThrows(IllegalArgumentException.class, () -> cache.put(key, document));
+                Assertions.assertThrows(IllegalArgumentException.class, () -> cache.copyTo(key, copy));
+            }
+            Assertions.assertEquals(0, cache.getEntryCount());
+        }
+        Assertions.assertFalse(Files.exists(temporaryFolder.resolve("escaped")));
+    }
+
+    @Test
+    void failedCompactionDoesNotLeaveAClosedJournal() throws IOException {
+        Path cacheDirectory = temporaryFolder.resolve("cache");
+        String key = "ab".repeat(32);
+        Path copy = temporaryFolder.resolve("copy.json");
+
+        try (ConversionCache cache = ConversionCache.open(cacheDirectory, 1 << 20)) {
+            cache.put(key, writeDocument("document.json", 100));
+            // With a directory in place of the index, neither the compacted index nor the journal can be written.
+            Path blocker = Files.createDirectories(cacheDirectory.resolve("index.tmp"));
+            Files.move(cacheDirectory.resolve("index"), blocker.resolve("index"));
+            Files.move(blocker, cacheDirectory.resolve("index"));
+
+            IOException failure = Assertions.assertThrows(IOException.class, () -> {
+                for (int i = 0; i < 2000; i++) {
+                    cache.copyTo(key, copy);
+                }
+            });
+            Assertions.assertFalse(failure.getMessage().contains("Stream closed"));
+            IOException next = Assertions.assertThrows(IOException.class, () -> cache.copyTo(key, copy));
+            Assertions.assertEquals("Conversion cache " + cacheDirectory + " is closed", next.getMessage());
+        }
+    }
+
+    @Test
+    void concurrentWorkersShareTheCache() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (ConversionCache cache = ConversionCache.open(temporaryFolder.resolve("cache"), 5_000)) {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                String key = String.format("%064x", i % 20);
+                Path document = writeDocument("document" + i + ".json", 100 + i % 20);
+                Path copy = temporaryFolder.resolve("copy" + i + ".json");
+                tasks.add(executor.submit(() -> {
+                    if (cache.copyTo(key, copy)) {
+                        Assertions.assertEquals(Files.size(document), Files.size(copy));
+                    } else {
+                        cache.put(key, document);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get();
+            }
+
+            Assertions.assertTrue(cache.getSize() <= 5_000);
+            try (Stream<Path> objects = Files.walk(temporaryFolder.resolve("cache/objects"))) {
+                Assertions.assertEquals(cache.getEntryCount(), objects.filter(Files::isRegularFile).count());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class DoubleListViewSerializerTests {
+
+    private static String format(long scaled, int fractionDigits) {
+        char[] buffer = new char[24];
+        return new String(buffer, 0, DoubleListViewSerializer.formatFixedPoint(scaled, fractionDigits, buffer));
+    }
+
+    @Test
+    void fixedPointDecimalsAreWrittenLikeDoubles() {
+        Assertions.assertEquals("2.1652", format(21652, 4));
+        Assertions.assertEquals("-0.005", format(-5, 3));
+        Assertions.assertEquals("1.5", format(1500, 3));
+        Assertions.assertEquals("12.0", format(12000, 3));
+        Assertions.assertEquals("12.0", format(12, 0));
+        Assertions.assertEquals("0.0", format(0, 6));
+        Assertions.assertEquals("0.00000000000000001", format(1, 17));
+        Assertions.assertEquals("99999999999999999.0", format(99_999_999_999_999_999L, 0));
+    }
+}
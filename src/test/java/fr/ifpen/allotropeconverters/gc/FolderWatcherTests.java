@@ -0,0 +1,107 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+class FolderWatcherTests {
+
+    @TempDir
+    Path temporaryFolder;
+
+    @Test
+    void convertsFolderOnceComplete() throws IOException, InterruptedException {
+        Path root = Files.createDirectories(temporaryFolder.resolve("instrument"));
+        Path outDir = temporaryFolder.resolve("out");
+        BlockingQueue<BatchReport.FolderResult> results = new LinkedBlockingQueue<>();
+
+        try (FolderWatcher watcher = new FolderWatcher(new GcToAllotropeJsonConverter(), root, outDir, Duration.ofMillis(200),
+                                                       1, results::add)) {
+            watcher.start();
+
+            Path source = Path.of("src/test/resources/V179.D");
+            Path run = Files.createDirectories(root.resolve("2022/run1.D"));
+            try (Stream<Path> files = Files.list(source)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    if (Files.isRegularFile(file)) {
+                        Files.copy(file, run.resolve(file.getFileName().toString()));
+                    }
+                }
+            }
+
+            BatchReport.FolderResult result = results.poll(30, TimeUnit.SECONDS);
+
+            Assertions.assertNotNull(result, "No conversion within 30 s");
+            Assertions.assertTrue(result.isSuccess());
+            Assertions.assertEquals(run, result.getFolder());
+            Assertions.assertTrue(Files.size(outDir.resolve("2022/run1.json")) > 0);
+        }
+    }
+
+    @Test
+    void everyChSignalIsPartOfTheRunState() throws IOException {
+        Path run = Files.createDirectories(temporaryFolder.resolve("run1.D"));
+        Files.copy(Path.of("src/test/resources/V179.D/Result.xml"), run.resolve("Result.xml"));
+        Files.copy(Path.of("src/test/resources/V179.D/acq.txt"), run.resolve("acq.txt"));
+        Assertions.assertNull(FolderWatcher.readRunFilesState(run), "No signal written yet");
+
+        // A run without FID1A.ch
+        Files.copy(Path.of("src/test/resources/V179.D/FID1A.ch"), run.resolve("TCD1A.ch"));
+        List<Object> state = FolderWatcher.readRunFilesState(run);
+        Assertions.assertNotNull(state);
+
+        // A second channel still being written
+        Files.write(run.resolve("FID2B.ch"), new byte[6144]);
+        List<Object> dualChannelState = FolderWatcher.readRunFilesState(run);
+        Assertions.assertNotEquals(state, dualChannelState);
+        Files.write(run.resolve("FID2B.ch"), new byte[100], StandardOpenOption.APPEND);
+        Assertions.assertNotEquals(dualChannelState, FolderWatcher.readRunFilesState(run));
+    }
+
+    @Test
+    void folderChangedDuringItsConversionIsConvertedAgainAfterIt() throws IOException, InterruptedException {
+        Path root = Files.createDirectories(temporaryFolder.resolve("instrument"));
+        Path run = root.resolve("run1.D");
+        BlockingQueue<BatchReport.FolderResult> results = new LinkedBlockingQueue<>();
+        AtomicInteger conversions = new AtomicInteger();
+        AtomicInteger maxConcurrentConversions = new AtomicInteger();
+        CountDownLatch firstConversion = new CountDownLatch(1);
+
+        try (FolderWatcher watcher = new FolderWatcher(new GcToAllotropeJsonConverter(), root, temporaryFolder.resolve("out"),
+                                                       Duration.ofMillis(100), 2, result -> {
+            maxConcurrentConversions.accumulateAndGet(conversions.incrementAndGet(), Math::max);
+            firstConversion.countDown();
+            try {
+                Thread.sleep(1000); // Keeps the conversion in progress while the run changes.
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            conversions.decrementAndGet();
+            results.add(result);
+        })) {
+            watcher.start();
+            TestFolders.copyFolder(Path.of("src/test/resources/V179.D"), run);
+
+            Assertions.assertTrue(firstConversion.await(30, TimeUnit.SECONDS), "No conversion within 30 s");
+            Files.setLastModifiedTime(run.resolve("acq.txt"), FileTime.fromMillis(System.currentTimeMillis()));
+
+            Assertions.assertNotNull(results.poll(30, TimeUnit.SECONDS));
+            Assertions.assertNotNull(results.poll(30, TimeUnit.SECONDS), "Not converted again");
+        }
+        Assertions.assertEquals(1, maxConcurrentConversions.get());
+    }
+}
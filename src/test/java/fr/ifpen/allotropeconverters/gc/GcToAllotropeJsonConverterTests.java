@@ -11,21 +11,44 @@ import com.networknt.schema.JsonSchemaFactory;
 import com.networknt.schema.SpecVersion;
 import com.networknt.schema.ValidationMessage;
 import fr.ifpen.allotropeconverters.gc.chemstation.ChemStationToAllotropeMapper;
+import fr.ifpen.allotropeconverters.gc.chemstation.ConversionMode;
+import fr.ifpen.allotropeconverters.gc.chemstation.ConversionStage;
+import fr.ifpen.allotropeconverters.gc.chemstation.ConversionListener;
+import fr.ifpen.allotropeconverters.gc.chemstation.Decimation;
+import fr.ifpen.allotropeconverters.gc.chemstation.SamplePrecision;
+import fr.ifpen.allotropeconverters.gc.chemstation.StageMetrics;
 import fr.ifpen.allotropeconverters.gc.schema.GasChromatographyTabularEmbedSchema;
 import jakarta.xml.bind.JAXBException;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
+import java.nio.DoubleBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 class GcToAllotropeJsonConverterTests {
@@ -91,6 +114,188 @@ class GcToAllotropeJsonConverterTests {
         Assertions.assertFalse(result.isNull());
     }
 
+    @Test
+    void streamedConversionMatchesTree() throws JAXBException, IOException {
+        GcToAllotropeJsonConverter converter = new GcToAllotropeJsonConverter();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        converter.convertTo(Paths.get("src/test/resources/V179.D"), outputStream);
+
+        JsonNode streamed = new ObjectMapper().readTree(outputStream.toByteArray());
+        Assertions.assertEquals(converter.convertFile("src/test/resources/V179.D"), streamed);
+        Assertions.assertEquals(0, getJsonSchemaFromClasspath().validate(streamed).size());
+    }
+
+    @Test
+    void metadataOnlyConversionLeavesOutSamples() throws JAXBException, IOException {
+        GcToAllotropeJsonConverter converter = new GcToAllotropeJsonConverter();
+
+        ObjectNode metadata = converter.convertFile("src/test/resources/V179.D", ConversionMode.METADATA_ONLY);
+
+        ObjectNode expected = converter.convertFile("src/test/resources/V179.D");
+        ((ObjectNode) expected.at("/gas chromatography aggregate document/gas chromatography document/0"
+                                  + "/measurement aggregate document/measurement document/0/chromatogram data cube"))
+                .remove("data");
+        Assertions.assertEquals(expected, metadata);
+        Assertions.assertEquals(0, getJsonSchemaFromClasspath().validate(metadata).size());
+    }
+
+    @Test
+    void sidecarConversionRoundTrips(@TempDir Path temporaryFolder) throws JAXBException, IOException {
+        GcToAllotropeJsonConverter converter = new GcToAllotropeJsonConverter();
+        Path jsonFile = temporaryFolder.resolve("V179.json");
+
+        Path sidecarFile = converter.convertWithSidecar(Paths.get("src/test/resources/V179.D"), jsonFile);
+
+        Assertions.assertEquals(temporaryFolder.resolve("V179.bin"), sidecarFile);
+        JsonNode document = new ObjectMapper().readTree(jsonFile.toFile());
+        JsonNode expected = converter.convertFile("src/test/resources/V179.D");
+        String cubePath = "/gas chromatography aggregate document/gas chromatography document/0"
+                          + "/measurement aggregate document/measurement document/0/chromatogram data cube";
+        JsonNode cube = document.at(cubePath);
+        Assertions.assertFalse(cube.has("data"));
+        Assertions.assertEquals(0, getJsonSchemaFromClasspath().validate(document).size());
+
+        JsonNode reference = cube.get(ChromatogramSidecar.REFERENCE_PROPERTY);
+        Assertions.assertEquals("V179.bin", reference.get("path").asText());
+        ChromatogramSidecar sidecar = ChromatogramSidecar.open(jsonFile, reference);
+        assertArraysEqual(expected.at(cubePath + "/data/dimensions"), sidecar.getArrays(reference.get("dimensions")));
+        assertArraysEqual(expected.at(cubePath + "/data/measures"), sidecar.getArrays(reference.get("measures"), true));
+    }
+
+    @Test
+    void sidecarConversionReplacesPreviousFiles(@TempDir Path temporaryFolder) throws JAXBException, IOException {
+        Path jsonFile = Files.writeString(temporaryFolder.resolve("V179.json"), "previous");
+        Files.writeString(temporaryFolder.resolve("V179.bin"), "previous");
+
+        Path sidecarFile = new GcToAllotropeJsonConverter().convertWithSidecar(Paths.get("src/test/resources/V179.D"),
+                                                                                jsonFile);
+
+        JsonNode reference = new ObjectMapper().readTree(jsonFile.toFile())
+                                               .findValue(ChromatogramSidecar.REFERENCE_PROPERTY);
+        Assertions.assertEquals(1, ChromatogramSidecar.open(jsonFile, reference)
+                                                      .getArrays(reference.get("measures")).size());
+        try (Stream<Path> files = Files.list(temporaryFolder)) {
+            Assertions.assertEquals(List.of(sidecarFile, jsonFile), files.sorted().toList());
+        }
+    }
+
+    @Test
+    void corruptedSidecarIsRejected(@TempDir Path temporaryFolder) throws JAXBException, IOException {
+        Path jsonFile = temporaryFolder.resolve("V179.json");
+        Path sidecarFile = new GcToAllotropeJsonConverter().convertWithSidecar(Paths.get("src/test/resources/V179.D"),
+                                                                                jsonFile);
+        byte[] bytes = Files.readAllBytes(sidecarFile);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(sidecarFile, bytes);
+
+        JsonNode reference = new ObjectMapper().readTree(jsonFile.toFile())
+                                               .findValue(ChromatogramSidecar.REFERENCE_PROPERTY);
+        ChromatogramSidecar sidecar = ChromatogramSidecar.open(sidecarFile);
+        long measuresOffset = reference.at("/measures/0/offset").asLong();
+        // Mapping alone does not read the values: only verification finds the corruption.
+        Assertions.assertDoesNotThrow(() -> sidecar.getArray(measuresOffset));
+        Assertions.assertThrows(IOException.class, () -> sidecar.getArray(measuresOffset, true));
+    }
+
+    private static void assertArraysEqual(JsonNode expected, List<DoubleBuffer> actual) {
+        Assertions.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < actual.size(); i++) {
+            DoubleBuffer array = actual.get(i);
+            Assertions.assertEquals(expected.get(i).size(), array.remaining());
+            for (int j = 0; j < array.remaining(); j++) {
+                Assertions.assertEquals(expected.get(i).get(j).asDouble(), array.get(j));
+            }
+        }
+    }
+
+    @Test
+    void roundedDocumentIsSmallerAndStreamedLikeItsTree() throws JAXBException, IOException {
+        GcToAllotropeJsonConverter converter = new GcToAllotropeJsonConverter(ZoneOffset.UTC,
+                                                                              ConversionRuntime.getDefault(),
+                                                                              Decimation.none(),
+                                                                              SamplePrecision.fileScaling(),
+                                                                              ConversionListener.none());
+        ByteArrayOutputStream rounded = new ByteArrayOutputStream();
+        converter.convertTo(Paths.get("src/test/resources/V179.D"), rounded);
+        ByteArrayOutputStream exact = new ByteArrayOutputStream();
+        new GcToAllotropeJsonConverter().convertTo(Paths.get("src/test/resources/V179.D"), exact);
+
+        Assertions.assertTrue(rounded.size() < exact.size() * 3 / 4);
+        Assertions.assertEquals(converter.convertFile("src/test/resources/V179.D"),
+                                new ObjectMapper().readTree(rounded.toByteArray()));
+    }
+
+    @Test
+    void listenerReceivesTheMetricsOfEveryStage() throws JAXBException, IOException {
+        ConcurrentLinkedQueue<StageMetrics> stages = new ConcurrentLinkedQueue<>();
+        GcToAllotropeJsonConverter converter = new GcToAllotropeJsonConverter(ZoneOffset.UTC,
+                                                                              ConversionRuntime.getDefault(),
+                                                                              Decimation.none(), stages::add);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        converter.convertTo(Paths.get("src/test/resources/V179.D"), out);
+
+        Assertions.assertEquals(List.of(ConversionStage.RESULT_XML, ConversionStage.ACQUISITION_METHOD,
+                                        ConversionStage.CH_FILE, ConversionStage.SERIALIZATION),
+                                stages.stream().map(StageMetrics::getStage).toList());
+        for (StageMetrics metrics : stages) {
+            Assertions.assertFalse(metrics.getWallTime().isNegative());
+        }
+        List<StageMetrics> metrics = new ArrayList<>(stages);
+        Assertions.assertEquals(Files.size(Paths.get("src/test/resources/V179.D/Result.xml")),
+                                metrics.get(0).getBytesRead());
+        Assertions.assertEquals(Files.size(Paths.get("src/test/resources/V179.D/FID1A.ch")),
+                                metrics.get(2).getBytesRead());
+        Assertions.assertTrue(metrics.get(2).getPointsDecoded() > 0);
+        Assertions.assertTrue(metrics.get(2).getPointsPerSecond() > 0);
+        Assertions.assertEquals(out.size(), metrics.get(3).getOutputBytes());
+    }
+
+    @Test
+    void stagesAreRecordedAsFlightRecorderEvents(@TempDir Path temporaryFolder) throws Exception {
+        Path recordingFile = temporaryFolder.resolve("conversion.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("fr.ifpen.allotropeconverters.gc.ConversionStage");
+            recording.start();
+            new GcToAllotropeJsonConverter().convertTo(Paths.get("src/test/resources/V179.D"),
+                                                       OutputStream.nullOutputStream());
+            recording.stop();
+            recording.dump(recordingFile);
+        }
+
+        List<String> stages = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(recordingFile)) {
+            if (event.getEventType().getName().equals("fr.ifpen.allotropeconverters.gc.ConversionStage")) {
+                stages.add(event.getString("stage"));
+                if (event.getString("stage").equals("CH_FILE")) {
+                    Assertions.assertTrue(event.getLong("pointsDecoded") > 0);
+                }
+            }
+        }
+        Assertions.assertEquals(List.of("RESULT_XML", "ACQUISITION_METHOD", "CH_FILE", "SERIALIZATION"), stages);
+    }
+
+    @Test
+    void sharedConverterIsThreadSafe() throws Exception {
+        ConversionRuntime runtime = new ConversionRuntime();
+        runtime.warmUp();
+        GcToAllotropeJsonConverter converter = new GcToAllotropeJsonConverter(ZoneId.of("Europe/Paris"), runtime);
+        ObjectNode expected = converter.convertFile("src/test/resources/V179.D");
+
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<ObjectNode>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executorService.submit(() -> converter.convertFile("src/test/resources/V179.D")));
+            }
+            for (Future<ObjectNode> result : results) {
+                Assertions.assertEquals(expected, result.get());
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
     @AfterAll()
     void CleanUp() {
         File resultFile = new File("src/test/resources/V179.json");
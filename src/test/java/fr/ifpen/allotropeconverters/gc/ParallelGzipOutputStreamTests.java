@@ -0,0 +1,80 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+class ParallelGzipOutputStreamTests {
+
+    private static final int BLOCK_SIZE = 32 * 1024;
+
+    @Test
+    void multipleBlocksDecompressToInput() throws IOException {
+        byte[] input = generateJsonLikeInput(10 * BLOCK_SIZE + 123);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream out = new ParallelGzipOutputStream(compressed, Deflater.DEFAULT_COMPRESSION,
+                                                                         BLOCK_SIZE, executor)) {
+            // Mixed single bytes and arrays spanning block boundaries
+            out.write(input, 0, 1000);
+            for (int i = 1000; i < 2000; i++) {
+                out.write(input[i]);
+            }
+            out.write(input, 2000, input.length - 2000);
+        } finally {
+            executor.shutdown();
+        }
+
+        Assertions.assertArrayEquals(input, decompress(compressed.toByteArray()));
+    }
+
+    @Test
+    void primedBlocksCompressLikeASingleDeflater() throws IOException {
+        byte[] input = generateJsonLikeInput(20 * BLOCK_SIZE);
+        ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        try (ParallelGzipOutputStream out = new ParallelGzipOutputStream(parallel)) {
+            out.write(input);
+        }
+        ByteArrayOutputStream serial = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(serial)) {
+            out.write(input);
+        }
+
+        Assertions.assertArrayEquals(input, decompress(parallel.toByteArray()));
+        Assertions.assertTrue(parallel.size() < serial.size() * 1.05,
+                              parallel.size() + " compressed bytes, against " + serial.size());
+    }
+
+    @Test
+    void emptyInputIsAValidGzipStream() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        new ParallelGzipOutputStream(compressed).close();
+
+        Assertions.assertEquals(0, decompress(compressed.toByteArray()).length);
+    }
+
+    private static byte[] generateJsonLikeInput(int length) {
+        Random random = new Random(42);
+        StringBuilder builder = new StringBuilder("[");
+        while (builder.length() < length) {
+            builder.append(2 + random.nextGaussian() / 100).append(',');
+        }
+        return builder.substring(0, length).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] decompress(byte[] compressed) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return in.readAllBytes();
+        }
+    }
+}
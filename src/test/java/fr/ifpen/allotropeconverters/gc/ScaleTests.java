@@ -0,0 +1,205 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import fr.ifpen.allotropeconverters.gc.chemstation.ChemStationToAllotropeMapper;
+import fr.ifpen.allotropeconverters.gc.chemstation.chfile.ChFile;
+import fr.ifpen.allotropeconverters.gc.chemstation.chfile.ChFileCursor;
+import fr.ifpen.allotropeconverters.gc.chemstation.chfile.ChFileFactory;
+import fr.ifpen.allotropeconverters.gc.chemstation.chfile.ChromatogramSignal;
+import fr.ifpen.allotropeconverters.gc.schema.GasChromatographyTabularEmbedSchema;
+import fr.ifpen.allotropeconverters.gc.schema.Peak;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Conversions of generated runs. The tests tagged "scale" convert runs as large as the longest acquisitions, and check
+ * throughput floors and heap ceilings; they only run with the scale profile: {@code mvn -Pscale test}.<br>
+ * Floors are set well below the throughput of a CI runner, so that a failure means a regression rather than a slow
+ * machine. Heap ceilings are given per point, on top of the heap used before the conversion: decoded values take 8
+ * bytes per point, and boxing them would take more than 24.
+ */
+class ScaleTests {
+
+    private static final int LARGE_RUN_POINTS = 10_000_000;
+    private static final int LARGE_RUN_PEAKS = 5_000;
+    private static final double MIN_DECODED_POINTS_PER_SECOND = 5_000_000;
+    private static final double MIN_CONVERTED_POINTS_PER_SECOND = 250_000;
+    private static final long MAX_DECODING_BYTES_PER_POINT = 24;
+    private static final long MAX_CONVERSION_BYTES_PER_POINT = 32;
+    private static final long MAX_CURSOR_BYTES = 16 << 20; // Whatever the number of points
+
+    @TempDir
+    Path temporaryFolder;
+
+    @Test
+    void generatedRunsDecodeToTheirSignal() throws Exception {
+        for (String version : new String[]{"179", "181"}) {
+            SyntheticRun run = SyntheticRun.defaults().withVersion(version).withPeakHeight(500);
+            Path file = temporaryFolder.resolve(version + ".ch");
+            run.writeChFile(file);
+
+            ChromatogramSignal signal = new ChFileFactory().getChFile(file.toString()).getSignal();
+
+            Assertions.assertEquals(run.getPoints(), signal.size());
+            Random random = new Random(42);
+            for (int i = 0; i < signal.size(); i++) {
+                double expected = Math.round(run.getValue(i, random) / SyntheticRun.Y_SCALING) * SyntheticRun.Y_SCALING;
+                Assertions.assertEquals(expected, signal.getValue(i), 1e-9);
+            }
+            Assertions.assertEquals(10, signal.getEndTime(), 1e-6);
+        }
+    }
+
+    @Test
+    void generatedFolderMaps() throws Exception {
+        Path folder = SyntheticRun.defaults().writeDFolder(temporaryFolder, "run.D");
+
+        GasChromatographyTabularEmbedSchema embedSchema = new ChemStationToAllotropeMapper(ZoneOffset.UTC)
+                .mapToGasChromatographySchema(folder.toString());
+
+        List<Peak> peaks = embedSchema.getGasChromatographyAggregateDocument()
+                                      .getGasChromatographyDocument()
+                                      .get(0)
+                                      .getMeasurementAggregateDocument()
+                                      .getMeasurementDocument()
+                                      .get(0)
+                                      .getPeakList()
+                                      .getPeak();
+        Assertions.assertEquals(10, peaks.size());
+        Assertions.assertEquals(90, peaks.get(1).getRetentionTime().getValue(), 1e-3); // 1.5 peak spacings of 60 s
+        Assertions.assertEquals(50, peaks.get(1).getPeakHeight().getValue(), 1e-6);
+    }
+
+    @Test
+    @Tag("scale")
+    void decodesLargeV179Runs() throws Exception {
+        assertDecodingScales("179");
+    }
+
+    @Test
+    @Tag("scale")
+    void decodesLargeV181Runs() throws Exception {
+        assertDecodingScales("181");
+    }
+
+    @Test
+    @Tag("scale")
+    void convertsLargeRuns() throws Exception {
+        Path folder = SyntheticRun.defaults()
+                                  .withPoints(LARGE_RUN_POINTS)
+                                  .withSamplingRate(100)
+                                  .withPeaks(LARGE_RUN_PEAKS)
+                                  .writeDFolder(temporaryFolder, "run.D");
+        GcToAllotropeJsonConverter converter = new GcToAllotropeJsonConverter();
+        ConversionRuntime.getDefault().warmUp();
+
+        long heapBefore = resetPeakHeap();
+        long start = System.nanoTime();
+        converter.convertTo(folder, OutputStream.nullOutputStream());
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long peakHeap = getPeakHeap() - heapBefore;
+
+        assertThroughput(LARGE_RUN_POINTS / seconds, MIN_CONVERTED_POINTS_PER_SECOND);
+        assertHeap(peakHeap, MAX_CONVERSION_BYTES_PER_POINT * LARGE_RUN_POINTS);
+    }
+
+    @Test
+    @Tag("scale")
+    void readsLargeRunsThroughACursorInConstantMemory() throws Exception {
+        Path file = temporaryFolder.resolve("181.ch");
+        SyntheticRun.defaults()
+                    .withVersion("181")
+                    .withPoints(LARGE_RUN_POINTS)
+                    .withSamplingRate(100)
+                    .withPeaks(LARGE_RUN_PEAKS)
+                    .writeChFile(file);
+        double[] times = new double[4096];
+        double[] values = new double[4096];
+
+        long heapBefore = resetPeakHeap();
+        long start = System.nanoTime();
+        long points = 0;
+        try (ChFileCursor cursor = new ChFileFactory().openCursor(file.toString())) {
+            int count;
+            while ((count = cursor.read(times, values)) >= 0) {
+                points += count;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long peakHeap = getPeakHeap() - heapBefore;
+
+        Assertions.assertEquals(LARGE_RUN_POINTS, points);
+        assertThroughput(LARGE_RUN_POINTS / seconds, MIN_DECODED_POINTS_PER_SECOND);
+        assertHeap(peakHeap, MAX_CURSOR_BYTES);
+    }
+
+    private void assertDecodingScales(String version) throws Exception {
+        Path file = temporaryFolder.resolve(version + ".ch");
+        SyntheticRun.defaults()
+                    .withVersion(version)
+                    .withPoints(LARGE_RUN_POINTS)
+                    .withSamplingRate(100)
+                    .withPeaks(LARGE_RUN_PEAKS)
+                    .writeChFile(file);
+        ChFileFactory chFileFactory = new ChFileFactory();
+
+        long heapBefore = resetPeakHeap();
+        long start = System.nanoTime();
+        ChFile chFile = chFileFactory.getChFile(file.toString());
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long peakHeap = getPeakHeap() - heapBefore;
+
+        Assertions.assertEquals(LARGE_RUN_POINTS, chFile.getSignal().size());
+        assertThroughput(LARGE_RUN_POINTS / seconds, MIN_DECODED_POINTS_PER_SECOND);
+        assertHeap(peakHeap, MAX_DECODING_BYTES_PER_POINT * LARGE_RUN_POINTS + Files.size(file));
+    }
+
+    private static void assertThroughput(double pointsPerSecond, double floor) {
+        Assertions.assertTrue(pointsPerSecond >= floor,
+                              String.format("%.0f points/s, expected at least %.0f", pointsPerSecond, floor));
+    }
+
+    private static void assertHeap(long peakHeap, long ceiling) {
+        Assertions.assertTrue(peakHeap <= ceiling,
+                              String.format("%d MB of peak heap, expected at most %d MB", peakHeap >> 20, ceiling >> 20));
+    }
+
+    /**
+     * Collects the garbage, and returns the heap in use from which peaks are then measured.
+     */
+    private static long resetPeakHeap() {
+        System.gc();
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                used += pool.getUsage().getUsed();
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Sums the peaks of the heap pools. They may not be reached at the same time, so this is an upper bound.
+     */
+    private static long getPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,96 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import fr.ifpen.allotropeconverters.gc.chemstation.ConversionListener;
+import fr.ifpen.allotropeconverters.gc.chemstation.ConversionMode;
+import fr.ifpen.allotropeconverters.gc.chemstation.Decimation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SequenceConverterTests {
+
+    @TempDir
+    Path temporaryFolder;
+
+    @Test
+    void sequenceHasOneDocumentPerRunAndASharedDevice() throws Exception {
+        Path sequence = Files.createDirectories(temporaryFolder.resolve("sequence"));
+        for (int i = 1; i <= 3; i++) {
+            TestFolders.copyFolder(Path.of("src/test/resources/V179.D"), sequence.resolve("run" + i + ".D"));
+        }
+        GcToAllotropeJsonConverter converter = new GcToAllotropeJsonConverter();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        converter.convertSequence(sequence, out);
+
+        ObjectNode run = converter.convertFile("src/test/resources/V179.D");
+        JsonNode aggregateDocument = new ObjectMapper().readTree(out.toByteArray())
+                                                       .get("gas chromatography aggregate document");
+        JsonNode expectedAggregateDocument = run.get("gas chromatography aggregate document");
+        Assertions.assertEquals(expectedAggregateDocument.get("device system document"),
+                                aggregateDocument.get("device system document"));
+
+        JsonNode gasChromatographyDocuments = aggregateDocument.get("gas chromatography document");
+        Assertions.assertEquals(3, gasChromatographyDocuments.size());
+        for (JsonNode gasChromatographyDocument : gasChromatographyDocuments) {
+            Assertions.assertEquals(expectedAggregateDocument.get("gas chromatography document").get(0),
+                                    gasChromatographyDocument);
+        }
+    }
+
+    @Test
+    void runsFromDifferentInstrumentsAreRejected() throws IOException {
+        Path sequence = Files.createDirectories(temporaryFolder.resolve("sequence"));
+        TestFolders.copyFolder(Path.of("src/test/resources/V179.D"), sequence.resolve("run1.D"));
+        TestFolders.copyFolder(Path.of("src/test/resources/V181.D"), sequence.resolve("run2.D"));
+
+        IOException exception = Assertions.assertThrows(IOException.class, () -> new GcToAllotropeJsonConverter()
+                .convertSequence(sequence, OutputStream.nullOutputStream()));
+        Assertions.assertTrue(exception.getMessage().contains("different instruments"));
+    }
+
+    @Test
+    void failedRunLeavesNoOtherRunMapping() throws IOException, InterruptedException {
+        Path sequence = Files.createDirectories(temporaryFolder.resolve("sequence"));
+        TestFolders.copyFolder(Path.of("src/test/resources/V179.D"), sequence.resolve("run1.D"));
+        TestFolders.copyFolder(Path.of("src/test/resources/V181.D"), sequence.resolve("run2.D"));
+        for (int i = 3; i <= 6; i++) {
+            TestFolders.copyFolder(Path.of("src/test/resources/V179.D"), sequence.resolve("run" + i + ".D"));
+        }
+        AtomicInteger completedStages = new AtomicInteger();
+        ConversionListener slowListener = metrics -> {
+            if (metrics.getSource().contains("run1.D") || metrics.getSource().contains("run2.D")) {
+                return;
+            }
+            try {
+                Thread.sleep(300); // Later runs are still being mapped when the second one is rejected.
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            completedStages.incrementAndGet();
+        };
+        GcToAllotropeJsonConverter converter = new GcToAllotropeJsonConverter(ZoneOffset.UTC,
+                                                                              ConversionRuntime.getDefault(),
+                                                                              Decimation.none(), slowListener);
+
+        Assertions.assertThrows(IOException.class, () -> converter.convertSequence(
+                sequence, OutputStream.nullOutputStream(), ConversionMode.FULL,
+                runnable -> new Thread(runnable).start()));
+        int completedOnFailure = completedStages.get();
+        Thread.sleep(1000);
+
+        // Each other run was either skipped, or mapped before the failure was thrown.
+        Assertions.assertEquals(completedOnFailure, completedStages.get());
+    }
+}
@@ -0,0 +1,299 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Random;
+
+import static java.nio.charset.StandardCharsets.UTF_16;
+
+/**
+ * Generates ChemStation runs of any size: a FID1A.ch file in the V179 or V181 format, with the Result.xml and acq.txt
+ * files the mappers read.<br>
+ * The signal is a flat baseline with noise and evenly spaced gaussian peaks, which Result.xml lists with their
+ * retention time, height, width and area. Instances are immutable: each {@code with} method returns a modified copy.
+ */
+public final class SyntheticRun {
+
+    public static final double Y_SCALING = 1.0 / 7680;
+    public static final double BASELINE = 2;
+
+    private static final int DATA_START = 6144;
+    private static final int START_TIME_POSITION = 282;
+    private static final int END_TIME_POSITION = 286;
+    private static final int UNITS_POSITION = 4172;
+    private static final int Y_OFFSET_POSITION = 4724;
+    private static final int Y_SCALING_POSITION = 4732;
+    private static final int DETECTOR_POSITION = 4213;
+    private static final double PEAK_EXTENT = 8; // In standard deviations, beyond which peaks are not computed
+
+    private final String version;
+    private final int points;
+    private final double samplingRate;
+    private final int peaks;
+    private final double peakHeight;
+    private final double peakWidth;
+    private final double noise;
+
+    private SyntheticRun(String version, int points, double samplingRate, int peaks, double peakHeight, double peakWidth,
+                         double noise) {
+        if (!version.equals("179") && !version.equals("181")) {
+            throw new IllegalArgumentException("Unknown version " + version);
+        }
+        if (points < 2 || samplingRate <= 0 || peaks < 0 || peakWidth <= 0) {
+            throw new IllegalArgumentException("Invalid run settings");
+        }
+        this.version = version;
+        this.points = points;
+        this.samplingRate = samplingRate;
+        this.peaks = peaks;
+        this.peakHeight = peakHeight;
+        this.peakWidth = peakWidth;
+        this.noise = noise;
+    }
+
+    /**
+     * A V181 run of 10 minutes at 5 Hz, with 10 peaks of 50 pA and 2 s at half height.
+     */
+    public static SyntheticRun defaults() {
+        return new SyntheticRun("181", 3000, 5, 10, 50, 2, 0.01);
+    }
+
+    /**
+     * Sets the .ch format, "179" or "181".
+     */
+    public SyntheticRun withVersion(String version) {
+        return new SyntheticRun(version, points, samplingRate, peaks, peakHeight, peakWidth, noise);
+    }
+
+    public SyntheticRun withPoints(int points) {
+        return new SyntheticRun(version, points, samplingRate, peaks, peakHeight, peakWidth, noise);
+    }
+
+    /**
+     * Sets the number of points per second.
+     */
+    public SyntheticRun withSamplingRate(double samplingRate) {
+        return new SyntheticRun(version, points, samplingRate, peaks, peakHeight, peakWidth, noise);
+    }
+
+    public SyntheticRun withPeaks(int peaks) {
+        return new SyntheticRun(version, points, samplingRate, peaks, peakHeight, peakWidth, noise);
+    }
+
+    /**
+     * Sets the height of the peaks above the baseline, in pA. In V181 files, the flanks of high and narrow peaks are
+     * stored as absolute values because their second differences overflow.
+     */
+    public SyntheticRun withPeakHeight(double peakHeight) {
+        return new SyntheticRun(version, points, samplingRate, peaks, peakHeight, peakWidth, noise);
+    }
+
+    /**
+     * Sets the width of the peaks at half height, in seconds.
+     */
+    public SyntheticRun withPeakWidth(double peakWidth) {
+        return new SyntheticRun(version, points, samplingRate, peaks, peakHeight, peakWidth, noise);
+    }
+
+    /**
+     * Sets the standard deviation of the gaussian noise, in pA.
+     */
+    public SyntheticRun withNoise(double noise) {
+        return new SyntheticRun(version, points, samplingRate, peaks, peakHeight, peakWidth, noise);
+    }
+
+    public int getPoints() {
+        return points;
+    }
+
+    public int getPeaks() {
+        return peaks;
+    }
+
+    /**
+     * Returns the value of a point in pA, before quantization to the file resolution.
+     */
+    public double getValue(int index, Random random) {
+        double value = BASELINE + noise * random.nextGaussian();
+        if (peaks == 0) {
+            return value;
+        }
+
+        int peak = Math.min(peaks - 1, (int) ((long) index * peaks / points));
+        double distance = (index - getApexIndex(peak)) / getPeakSigma();
+        if (Math.abs(distance) < PEAK_EXTENT) {
+            value += peakHeight * Math.exp(-distance * distance / 2);
+        }
+        return value;
+    }
+
+    /**
+     * Writes FID1A.ch, Result.xml and acq.txt to a new folder of the directory.
+     */
+    public Path writeDFolder(Path directory, String name) throws IOException {
+        Path folder = Files.createDirectories(directory.resolve(name));
+        writeChFile(folder.resolve("FID1A.ch"));
+        writeResult(folder.resolve("Result.xml"));
+        writeAcquisition(folder.resolve("acq.txt"));
+        return folder;
+    }
+
+    public void writeChFile(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(DATA_START);
+        putString(header, 0, version, false);
+        header.putFloat(START_TIME_POSITION, 0);
+        header.putFloat(END_TIME_POSITION, (float) (points * 1000 / samplingRate));
+        putString(header, UNITS_POSITION, "pA", true);
+        putString(header, DETECTOR_POSITION, "FID1A, Front Signal", true);
+        header.putDouble(Y_OFFSET_POSITION, 0);
+        header.putDouble(Y_SCALING_POSITION, Y_SCALING);
+
+        Random random = new Random(42);
+        ByteBuffer data = ByteBuffer.allocate(1 << 16);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header.position(DATA_START));
+
+            long previousValue = 0;
+            long previousDelta = 0;
+            for (int i = 0; i < points; i++) {
+                long value = Math.round(getValue(i, random) / Y_SCALING);
+
+                if (data.remaining() < Long.BYTES) {
+                    writeFully(channel, data);
+                }
+                if (version.equals("179")) {
+                    data.order(ByteOrder.LITTLE_ENDIAN).putDouble(value);
+                } else {
+                    // Second order differences, with an escape to an absolute value when they do not fit a short.
+                    long delta = value - previousValue;
+                    long secondDelta = delta - previousDelta;
+                    data.order(ByteOrder.BIG_ENDIAN);
+                    if (secondDelta >= Short.MIN_VALUE && secondDelta < Short.MAX_VALUE) {
+                        data.putShort((short) secondDelta);
+                        previousDelta = delta;
+                    } else {
+                        int low = (int) value;
+                        data.putShort(Short.MAX_VALUE).putShort((short) ((value - low) >> 32)).putInt(low);
+                        previousDelta = 0;
+                    }
+                    previousValue = value;
+                }
+            }
+            writeFully(channel, data);
+        }
+    }
+
+    public void writeResult(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, UTF_16)) {
+            writer.write("""
+                         <?xml version = "1.0" encoding="utf-16"?>
+                         <ChemStationResult>
+                           <Acquisition>
+                             <InstrumentName>GC00</InstrumentName>
+                           </Acquisition>
+                           <SampleInformation>
+                             <Inj>1</Inj>
+                             <Method>SYNTHETIC.M</Method>
+                             <Operator>SYSTEM</Operator>
+                             <InjectionDateTime>12-May-22, 11:24:28</InjectionDateTime>
+                             <SampleName>synthetic</SampleName>
+                             <SampleInfo>Generated run</SampleInfo>
+                           </SampleInformation>
+                           <Chromatograms>
+                             <Signal>
+                               <Description>FID1 A, Front Signal</Description>
+                               <Detector>FID1</Detector>
+                               <SignalId>A</SignalId>
+                               <XUnits>min</XUnits>
+                               <YUnits>pA</YUnits>
+                             </Signal>
+                           </Chromatograms>
+                           <Results>
+                             <ResultsGroup>
+                               <ResultsGroupDescription>FID1 A, Front Signal</ResultsGroupDescription>
+                         """);
+
+            double area = peakHeight * getPeakSigma() * Math.sqrt(2 * Math.PI) / samplingRate;
+            for (int peak = 0; peak < peaks; peak++) {
+                writer.write(String.format(Locale.US, """
+                                                          <Peak>
+                                                            <CompoundID>%d</CompoundID>
+                                                            <PeakType>BB  </PeakType>
+                                                            <MeasRetTime Unit="min">%f</MeasRetTime>
+                                                            <Area Unit="pA*s">%f</Area>
+                                                            <Height Unit="pA">%f</Height>
+                                                            <Width Unit="min">%f</Width>
+                                                            <Name/>
+                                                            <Amount Unit="%%">%.10f</Amount>
+                                                          </Peak>
+                                                      """,
+                                           peak, getApexIndex(peak) / samplingRate / 60, area, peakHeight,
+                                           peakWidth / 60, 100.0 / peaks));
+            }
+
+            writer.write("""
+                               </ResultsGroup>
+                             </Results>
+                           </ChemStationResult>
+                         """);
+        }
+    }
+
+    public void writeAcquisition(Path file) throws IOException {
+        Files.writeString(file, """
+                                Acq. Method: SYNTHETIC.M
+
+
+                                =====================================================================
+                                                              Column(s)
+                                =====================================================================
+
+                                Column Description :  HP-PONA
+                                Inventory#         :  autoID-1
+                                Model#             :  19091S-001
+                                Manufacturer       :  Agilent
+                                Diameter           :   200.0 µm
+                                Length             :   50.0 m
+                                Film thickness     :    0.50 µm
+                                Void time          :    3.723 min
+                                """, UTF_16);
+    }
+
+    private double getApexIndex(int peak) {
+        return (peak + 0.5) * points / peaks;
+    }
+
+    private double getPeakSigma() {
+        // Full width at half maximum of a gaussian: 2 * sqrt(2 * ln 2) standard deviations.
+        return peakWidth * samplingRate / (2 * Math.sqrt(2 * Math.log(2)));
+    }
+
+    private static void putString(ByteBuffer buffer, int position, String value, boolean isUtf16) {
+        buffer.position(position);
+        buffer.put((byte) value.length());
+        for (char character : value.toCharArray()) {
+            if (isUtf16) {
+                buffer.put((byte) character).put((byte) (character >> 8));
+            } else {
+                buffer.put((byte) character);
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer data) throws IOException {
+        data.flip();
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+        data.clear();
+    }
+}
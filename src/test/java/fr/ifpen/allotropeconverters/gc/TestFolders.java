@@ -0,0 +1,39 @@
+package fr.ifpen.allotropeconverters.gc;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Copies of the fixture .D folders, for tests writing runs of their own, and cleanup of the folders written outside
+ * of a temporary directory managed by JUnit.
+ */
+public final class TestFolders {
+
+    private TestFolders() {
+    }
+
+    /**
+     * Copies the folder and its content to the target, which must not exist yet; its parent must.
+     */
+    public static void copyFolder(Path source, Path target) throws IOException {
+        try (Stream<Path> paths = Files.walk(source)) {
+            for (Path path : (Iterable<Path>) paths::iterator) {
+                Files.copy(path, target.resolve(source.relativize(path).toString()));
+            }
+        }
+    }
+
+    /**
+     * Deletes the folder and its content.
+     */
+    public static void deleteFolder(Path folder) throws IOException {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(path);
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package fr.ifpen.allotropeconverters.gc.chemstation;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+class AcquisitionMethodReportTests {
+
+    @Test
+    void sectionsAndBlocksAreIndexed() throws IOException {
+        AcquisitionMethodReport report = AcquisitionMethodReport.read("src/test/resources/V181.D");
+
+        Assertions.assertEquals(List.of("", "6890 GC METHOD", "Column(s)"),
+                                report.getSections().stream().map(AcquisitionMethodReport.Section::getTitle).toList());
+        Assertions.assertEquals("DET3300.M", report.getSection("").getEntry("Acq. Method"));
+
+        AcquisitionMethodReport.Section method = report.getSection("6890 gc method");
+        Assertions.assertEquals("60 C (On)", method.getBlock("OVEN").getEntry("Initial temp"));
+        Assertions.assertEquals("100 C (On)", method.getBlock("FRONT INLET (COOL ON COLUMN)").getEntry("Initial temp"));
+        Assertions.assertEquals("19.71 min", method.getEntry("Run time"));
+        Assertions.assertNull(report.getSection("Oven"));
+    }
+
+    @Test
+    void severalEntriesPerLineAreSplit() {
+        AcquisitionMethodReport report = AcquisitionMethodReport.parse(
+                "Data File  : C:\\Data\\run.D\n"
+                + "=====================================================================\n"
+                + "                              Column(s)\n"
+                + "=====================================================================\n"
+                + "\n"
+                + "Model#             :  19091S-001        Manufacturer: Agilent\r\n"
+                + "Diameter           : 200.00 µm          Length :   50.0 m\r\n"
+                + "Comment            :\r\n");
+
+        Assertions.assertEquals("C:\\Data\\run.D", report.getSection("").getEntry("Data File"));
+
+        AcquisitionMethodReport.Section columns = report.getSection("Column(s)");
+        Assertions.assertEquals("19091S-001", columns.getEntry("Model#"));
+        Assertions.assertEquals("Agilent", columns.getEntry("Manufacturer"));
+        Assertions.assertEquals("200.00 µm", columns.getEntry("Diameter"));
+        Assertions.assertEquals("50.0 m", columns.getEntry("Length"));
+        Assertions.assertEquals("", columns.getEntry("Comment"));
+        Assertions.assertEquals(1, columns.getBlocks().size());
+    }
+}
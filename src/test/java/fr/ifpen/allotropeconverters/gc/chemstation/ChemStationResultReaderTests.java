@@ -0,0 +1,130 @@
+package fr.ifpen.allotropeconverters.gc.chemstation;
+
+import fr.ifpen.allotropeconverters.gc.SyntheticRun;
+import jakarta.xml.bind.JAXBException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Node;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_16;
+
+class ChemStationResultReaderTests {
+
+    @TempDir
+    Path temporaryFolder;
+
+    private final ChemStationResultReader resultReader = new ChemStationResultReader();
+
+    @Test
+    void streamedResultMatchesUnmarshalledResult() throws Exception {
+        Path synthetic = SyntheticRun.defaults().withPeaks(50).writeDFolder(temporaryFolder, "run.D");
+
+        for (String folder : new String[]{"src/test/resources/V179.D", "src/test/resources/V181.D", synthetic.toString()}) {
+            ChemStationResult streamed = resultReader.read(folder);
+            ChemStationResult unmarshalled = resultReader.readWithJaxb(new File(folder, "Result.xml"));
+
+            Assertions.assertEquals(getText(unmarshalled.acquisition.instrumentName), streamed.acquisition.instrumentName);
+            Assertions.assertEquals(getText(unmarshalled.sampleInformation.operator), streamed.sampleInformation.operator);
+            Assertions.assertEquals(getText(unmarshalled.sampleInformation.injectionDateTime),
+                                    streamed.sampleInformation.injectionDateTime);
+            Assertions.assertEquals(getText(unmarshalled.sampleInformation.sampleName), streamed.sampleInformation.sampleName);
+
+            List<ChemStationResult.Chromatograms.Signal> signals = unmarshalled.chromatograms.getSignal();
+            Assertions.assertEquals(signals.size(), streamed.chromatograms.getSignal().size());
+            for (int i = 0; i < signals.size(); i++) {
+                Assertions.assertEquals(getText(signals.get(i).detector), streamed.chromatograms.getSignal().get(i).detector);
+                Assertions.assertEquals(getText(signals.get(i).signalId), streamed.chromatograms.getSignal().get(i).signalId);
+            }
+
+            List<ResultsType.ResultsGroup> resultsGroups = unmarshalled.results.getResultsGroup();
+            Assertions.assertEquals(resultsGroups.size(), streamed.results.getResultsGroup().size());
+            for (int i = 0; i < resultsGroups.size(); i++) {
+                List<CompoundType> peaks = resultsGroups.get(i).getPeak();
+                List<CompoundType> streamedPeaks = streamed.results.getResultsGroup().get(i).getPeak();
+                Assertions.assertEquals(peaks.size(), streamedPeaks.size());
+                for (int j = 0; j < peaks.size(); j++) {
+                    Assertions.assertEquals(peaks.get(j).getCompoundID(), streamedPeaks.get(j).getCompoundID());
+                    Assertions.assertEquals(getText(peaks.get(j).getName()), streamedPeaks.get(j).getName());
+                    assertSameValue(peaks.get(j).getMeasRetTime(), streamedPeaks.get(j).getMeasRetTime());
+                    assertSameValue(peaks.get(j).getArea(), streamedPeaks.get(j).getArea());
+                    assertSameValue(peaks.get(j).getHeight(), streamedPeaks.get(j).getHeight());
+                    assertSameValue(peaks.get(j).getAmount(), streamedPeaks.get(j).getAmount());
+                }
+            }
+        }
+    }
+
+    @Test
+    void peaksAreHandedToTheSinkAsTheyAreRead() throws Exception {
+        ChemStationResult collected = resultReader.read("src/test/resources/V181.D");
+        RecordingPeakSink sink = new RecordingPeakSink();
+        ChemStationResult streamed = resultReader.read("src/test/resources/V181.D", sink);
+
+        List<ResultsType.ResultsGroup> resultsGroups = collected.results.getResultsGroup();
+        Assertions.assertEquals(resultsGroups.size(), streamed.results.getResultsGroup().size());
+        List<CompoundType> expectedPeaks = new ArrayList<>();
+        List<Integer> expectedIndexes = new ArrayList<>();
+        for (int i = 0; i < resultsGroups.size(); i++) {
+            for (CompoundType peak : resultsGroups.get(i).getPeak()) {
+                expectedPeaks.add(peak);
+                expectedIndexes.add(i);
+            }
+            Assertions.assertEquals(resultsGroups.get(i).resultsGroupDescription,
+                                    streamed.results.getResultsGroup().get(i).resultsGroupDescription);
+            Assertions.assertTrue(streamed.results.getResultsGroup().get(i).getPeak().isEmpty());
+        }
+        Assertions.assertFalse(expectedPeaks.isEmpty());
+        Assertions.assertEquals(expectedIndexes, sink.resultsGroupIndexes);
+        Assertions.assertEquals(expectedPeaks.size(), sink.peaks.size());
+        for (int i = 0; i < expectedPeaks.size(); i++) {
+            Assertions.assertEquals(expectedPeaks.get(i).getCompoundID(), sink.peaks.get(i).getCompoundID());
+            assertSameValue(expectedPeaks.get(i).getArea(), sink.peaks.get(i).getArea());
+        }
+    }
+
+    @Test
+    void invalidResultIsReportedByJaxb() throws Exception {
+        Path folder = Files.createDirectories(temporaryFolder.resolve("broken.D"));
+        Files.writeString(folder.resolve("Result.xml"), "<ChemStationResult><Acquisition>", UTF_16);
+
+        Assertions.assertThrows(JAXBException.class, () -> resultReader.read(folder.toString()));
+    }
+
+    private static String getText(Object element) {
+        return element instanceof Node node ? node.getTextContent() : null;
+    }
+
+    private static void assertSameValue(Value expected, Value actual) {
+        if (expected == null) {
+            Assertions.assertNull(actual);
+            return;
+        }
+        Assertions.assertEquals(expected.getContent(), actual.getContent());
+        Assertions.assertEquals(expected.getUnit(), actual.getUnit());
+    }
+
+    private static final class RecordingPeakSink implements ChemStationResultReader.PeakSink {
+
+        private final List<Integer> resultsGroupIndexes = new ArrayList<>();
+        private final List<CompoundType> peaks = new ArrayList<>();
+
+        @Override
+        public void accept(int resultsGroupIndex, CompoundType compound) {
+            resultsGroupIndexes.add(resultsGroupIndex);
+            peaks.add(compound);
+        }
+
+        @Override
+        public void clear() {
+            resultsGroupIndexes.clear();
+            peaks.clear();
+        }
+    }
+}
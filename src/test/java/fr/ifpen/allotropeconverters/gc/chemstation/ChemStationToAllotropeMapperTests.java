@@ -0,0 +1,61 @@
+package fr.ifpen.allotropeconverters.gc.chemstation;
+
+import fr.ifpen.allotropeconverters.gc.SyntheticRun;
+import fr.ifpen.allotropeconverters.gc.schema.GasChromatographyDocument;
+import fr.ifpen.allotropeconverters.gc.schema.GasChromatographyTabularEmbedSchema;
+import fr.ifpen.allotropeconverters.gc.schema.MeasurementDocument;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_16;
+
+class ChemStationToAllotropeMapperTests {
+
+    @TempDir
+    Path temporaryFolder;
+
+    @Test
+    void mapsEverySignalOfResult() throws Exception {
+        Path folder = SyntheticRun.defaults().writeDFolder(temporaryFolder, "run.D");
+        SyntheticRun.defaults().withPoints(1000).withPeaks(2).writeChFile(folder.resolve("TCD2B.ch"));
+        addSignal(folder.resolve("Result.xml"), "TCD2", "B", "TCD2 B, Back Signal");
+
+        GasChromatographyTabularEmbedSchema embedSchema = new ChemStationToAllotropeMapper(ZoneOffset.UTC)
+                .mapToGasChromatographySchema(folder.toString());
+
+        GasChromatographyDocument gasChromatographyDocument = embedSchema.getGasChromatographyAggregateDocument()
+                                                                         .getGasChromatographyDocument()
+                                                                         .get(0);
+        List<MeasurementDocument> measurementDocuments = gasChromatographyDocument.getMeasurementAggregateDocument()
+                                                                                  .getMeasurementDocument();
+        Assertions.assertEquals(2, measurementDocuments.size());
+        Assertions.assertEquals("FID1", measurementDocuments.get(0).getDetectionType());
+        Assertions.assertEquals(10, measurementDocuments.get(0).getPeakList().getPeak().size());
+        Assertions.assertEquals("TCD2", measurementDocuments.get(1).getDetectionType());
+        Assertions.assertEquals(1, measurementDocuments.get(1).getPeakList().getPeak().size());
+        Assertions.assertEquals(2, gasChromatographyDocument.getDetectorControlAggregateDocument()
+                                                            .getDetectorControlDocument()
+                                                            .size());
+    }
+
+    /**
+     * Lists a second signal in Result.xml, with a results group holding a copy of the first peak.
+     */
+    private static void addSignal(Path resultFile, String detector, String signalId, String description) throws Exception {
+        String result = Files.readString(resultFile, UTF_16);
+        String peak = result.substring(result.indexOf("<Peak>"), result.indexOf("</Peak>") + "</Peak>".length());
+
+        result = result.replace("</Chromatograms>", "<Signal><Description>" + description + "</Description><Detector>"
+                                                    + detector + "</Detector><SignalId>" + signalId
+                                                    + "</SignalId></Signal></Chromatograms>");
+        result = result.replace("</Results>", "<ResultsGroup><ResultsGroupDescription>" + description
+                                              + "</ResultsGroupDescription>" + peak + "</ResultsGroup></Results>");
+        Files.writeString(resultFile, result, UTF_16);
+    }
+}
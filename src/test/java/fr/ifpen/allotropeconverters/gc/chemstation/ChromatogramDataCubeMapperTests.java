@@ -1,10 +1,13 @@
 package fr.ifpen.allotropeconverters.gc.chemstation;
 
+import fr.ifpen.allotropeconverters.gc.chemstation.chfile.ChFileFactory;
 import fr.ifpen.allotropeconverters.gc.schema.ChromatogramDataCube;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 class ChromatogramDataCubeMapperTests {
 
@@ -25,4 +28,72 @@ class ChromatogramDataCubeMapperTests {
         ChromatogramDataCube chromatogramDataCube = mapper.readChromatogramDataCube("src/test/resources/V179.D/FID1A.ch");
         Assertions.assertEquals("FID1A, Front Signal", chromatogramDataCube.getLabel());
     }
+
+    @Test
+    void metadataOnlyCubeHasNoData() throws IOException {
+
+        ChromatogramDataCubeMapper mapper = new ChromatogramDataCubeMapper();
+
+        ChromatogramDataCube chromatogramDataCube = mapper.readChromatogramDataCube("src/test/resources/V179.D/FID1A.ch",
+                                                                                    ConversionMode.METADATA_ONLY);
+        Assertions.assertEquals("FID1A, Front Signal", chromatogramDataCube.getLabel());
+        Assertions.assertNotNull(chromatogramDataCube.getCubeStructure());
+        Assertions.assertNull(chromatogramDataCube.getData());
+    }
+
+    @Test
+    void cubesHaveTheirOwnStructure() throws IOException {
+        ChromatogramDataCubeMapper mapper = new ChromatogramDataCubeMapper();
+
+        ChromatogramDataCube v179 = mapper.readChromatogramDataCube("src/test/resources/V179.D/FID1A.ch");
+        ChromatogramDataCube v181 = mapper.readChromatogramDataCube("src/test/resources/V181.D/FID1A.ch");
+        v179.getCubeStructure().getDimensions().get(0).setUnit("s");
+
+        Assertions.assertEquals("min", v181.getCubeStructure().getDimensions().get(0).getUnit());
+        Assertions.assertEquals("time", v181.getCubeStructure().getDimensions().get(0).getConcept());
+        Assertions.assertEquals("pA", v181.getCubeStructure().getMeasures().get(0).getUnit());
+    }
+
+    @Test
+    void fileScalingRoundsValuesToTheFileResolution() throws IOException {
+        String chFilePath = "src/test/resources/V181.D/FID1A.ch";
+        double resolution = new ChFileFactory().getChFile(chFilePath).getSignal().getResolution();
+        ChromatogramDataCubeMapper mapper = new ChromatogramDataCubeMapper(Decimation.none(), SamplePrecision.fileScaling(),
+                                                                           ConversionListener.none());
+
+        List<Double> exactValues = new ChromatogramDataCubeMapper().readChromatogramDataCube(chFilePath)
+                                                                   .getData().getMeasures().get(0);
+        List<Double> roundedValues = mapper.readChromatogramDataCube(chFilePath).getData().getMeasures().get(0);
+
+        Assertions.assertTrue(resolution > 0);
+        Assertions.assertEquals(exactValues.size(), roundedValues.size());
+        for (int i = 0; i < exactValues.size(); i++) {
+            Assertions.assertEquals(exactValues.get(i).doubleValue(), roundedValues.get(i).doubleValue(), resolution / 2);
+        }
+    }
+
+    @Test
+    void failedSignalLeavesNoOtherSignalDecoding() throws InterruptedException {
+        AtomicInteger completedReads = new AtomicInteger();
+        ConversionListener slowListener = metrics -> {
+            try {
+                Thread.sleep(200); // The other signal is still being read when the first one fails.
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            completedReads.incrementAndGet();
+        };
+        ChromatogramDataCubeMapper mapper = new ChromatogramDataCubeMapper(Decimation.none(), SamplePrecision.full(),
+                                                                           slowListener,
+                                                                           runnable -> new Thread(runnable).start());
+
+        Assertions.assertThrows(IOException.class, () -> mapper.readChromatogramDataCubes(
+                List.of("src/test/resources/V179.D/missing.ch", "src/test/resources/V179.D/FID1A.ch"),
+                List.of(new double[0], new double[0]), ConversionMode.FULL));
+        int completedOnFailure = completedReads.get();
+        Thread.sleep(400);
+
+        // The other signal was either skipped, or read before the failure was thrown.
+        Assertions.assertEquals(completedOnFailure, completedReads.get());
+    }
 }
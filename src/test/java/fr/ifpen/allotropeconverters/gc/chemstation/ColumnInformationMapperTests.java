@@ -32,4 +32,18 @@ class ColumnInformationMapperTests {
     void mapperCI_withMultipleColumnInformationPerLine() throws IOException {
         readAndAssertColumnInformation("src/test/resources/V179_2.D");
     }
+
+    @Test
+    void mapperCI_withBlankModelAndManufacturer() throws IOException {
+        ColumnInformationMapper columnInformationMapper = new ColumnInformationMapper();
+
+        ChromatographyColumnDocument chromatographyColumnDocument = columnInformationMapper.readColumnDocumentFromFile(
+                "src/test/resources/V181.D");
+
+        Assertions.assertNull(chromatographyColumnDocument.getChromatographyColumnPartNumber());
+        Assertions.assertNull(chromatographyColumnDocument.getProductManufacturer());
+        Assertions.assertEquals(0.53, chromatographyColumnDocument.getColumnInnerDiameter().getValue());
+        Assertions.assertEquals(10, chromatographyColumnDocument.getChromatographyColumnLength().getValue());
+        Assertions.assertEquals(0.88, chromatographyColumnDocument.getChromatographyColumnFilmThickness().getValue());
+    }
 }
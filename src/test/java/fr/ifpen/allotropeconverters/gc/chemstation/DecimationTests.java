@@ -0,0 +1,101 @@
+package fr.ifpen.allotropeconverters.gc.chemstation;
+
+import fr.ifpen.allotropeconverters.gc.SyntheticRun;
+import fr.ifpen.allotropeconverters.gc.chemstation.chfile.ChFileFactory;
+import fr.ifpen.allotropeconverters.gc.chemstation.chfile.ChromatogramSignal;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class DecimationTests {
+
+    private static final int POINTS = 30_000;
+    private static final int PEAKS = 30;
+
+    private ChromatogramSignal signal;
+    private double[] apexTimes;
+
+    @BeforeAll
+    void createSignal() throws IOException {
+        Path file = Files.createTempFile("decimation", ".ch");
+        SyntheticRun.defaults().withPoints(POINTS).withPeaks(PEAKS).writeChFile(file);
+        signal = new ChFileFactory().getChFile(file.toString()).getSignal();
+        Files.delete(file);
+
+        apexTimes = new double[PEAKS];
+        for (int peak = 0; peak < PEAKS; peak++) {
+            apexTimes[peak] = signal.getTime((int) ((peak + 0.5) * POINTS / PEAKS));
+        }
+    }
+
+    @Test
+    void noneKeepsEveryPoint() {
+        int[] indices = Decimation.none().selectIndices(signal, apexTimes);
+
+        Assertions.assertEquals(POINTS, indices.length);
+        Assertions.assertEquals(POINTS - 1, indices[POINTS - 1]);
+    }
+
+    @Test
+    void largestTriangleThreeBucketsKeepsTargetAndApexes() {
+        int[] indices = Decimation.largestTriangleThreeBuckets(500).selectIndices(signal, apexTimes);
+
+        Assertions.assertTrue(indices.length >= 500 && indices.length <= 500 + PEAKS, "Kept " + indices.length);
+        assertSortedWithEnds(indices);
+        assertApexesKept(indices);
+    }
+
+    @Test
+    void minMaxKeepsExtrema() {
+        int[] indices = Decimation.minMax(1000).selectIndices(signal, apexTimes);
+
+        Assertions.assertTrue(indices.length <= 1002 + PEAKS, "Kept " + indices.length);
+        assertSortedWithEnds(indices);
+        assertApexesKept(indices);
+
+        int minIndex = 0;
+        for (int i = 0; i < POINTS; i++) {
+            if (signal.getValue(i) < signal.getValue(minIndex)) {
+                minIndex = i;
+            }
+        }
+        Assertions.assertTrue(Arrays.binarySearch(indices, minIndex) >= 0);
+    }
+
+    @Test
+    void toleranceShrinksBaseline() {
+        int[] indices = Decimation.minMaxWithTolerance(0.1).selectIndices(signal, apexTimes);
+
+        Assertions.assertTrue(indices.length < POINTS / 5, "Kept " + indices.length);
+        assertSortedWithEnds(indices);
+        assertApexesKept(indices);
+    }
+
+    private void assertSortedWithEnds(int[] indices) {
+        Assertions.assertEquals(0, indices[0]);
+        Assertions.assertEquals(POINTS - 1, indices[indices.length - 1]);
+        for (int i = 1; i < indices.length; i++) {
+            Assertions.assertTrue(indices[i - 1] < indices[i]);
+        }
+    }
+
+    private void assertApexesKept(int[] indices) {
+        for (double apexTime : apexTimes) {
+            int nearest = (int) Math.round((apexTime - signal.getStartTime()) / signal.getStep());
+            int apex = nearest;
+            for (int i = nearest - Decimation.APEX_SEARCH_RADIUS; i <= nearest + Decimation.APEX_SEARCH_RADIUS; i++) {
+                if (signal.getValue(i) > signal.getValue(apex)) {
+                    apex = i;
+                }
+            }
+            Assertions.assertTrue(Arrays.binarySearch(indices, apex) >= 0, "Apex " + apex + " dropped");
+        }
+    }
+}
@@ -2,12 +2,16 @@ package fr.ifpen.allotropeconverters.gc.chemstation.chfile;
 
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import javax.measure.unit.SI;
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 class ChFile179Tests {
@@ -15,8 +19,7 @@ class ChFile179Tests {
     @Test
     void getVersionReturnsExpected() throws IOException {
         URI uri = new File("src/test/resources/V179.D/FID1A.ch").toURI();
-        RandomAccessFile file = new RandomAccessFile(uri.getPath(), "r");
-        ChFile chFile = new ChFile179(file);
+        ChFile chFile = new ChFile179(ReadHelpers.readFile(Path.of(uri)));
 
         List<Double> values = chFile.getValues();
 
@@ -25,4 +28,37 @@ class ChFile179Tests {
 
         Assertions.assertEquals(SI.PICO(SI.AMPERE), chFile.getUnit());
     }
+
+    @Test
+    void lazyFileDecodesOnFirstUse(@TempDir Path temporaryFolder) throws IOException {
+        Path file = Files.copy(Path.of("src/test/resources/V179.D/FID1A.ch"), temporaryFolder.resolve("FID1A.ch"));
+        ChFile chFile = new ChFileFactory().getLazyChFile(file.toString());
+
+        Assertions.assertFalse(chFile.isSignalLoaded());
+        Assertions.assertEquals("FID1A, Front Signal", chFile.getDetector());
+        Assertions.assertEquals(SI.PICO(SI.AMPERE), chFile.getUnit());
+
+        Assertions.assertEquals(71840, chFile.getValues().size());
+        Assertions.assertTrue(chFile.isSignalLoaded());
+
+        ChFile deletedFile = new ChFileFactory().getLazyChFile(file.toString());
+        Files.delete(file);
+        Assertions.assertEquals(chFile.getEndTime(), deletedFile.getEndTime());
+        Assertions.assertThrows(UncheckedIOException.class, deletedFile::getSignal);
+    }
+
+    @Test
+    void successiveFilesAreReadIntoTheSameBuffer() throws IOException {
+        ChFileFactory chFileFactory = new ChFileFactory();
+        ChFile v179 = chFileFactory.getChFile("src/test/resources/V179.D/FID1A.ch");
+        ByteBuffer readBuffer = DecodeContext.current().getReadBuffer(1);
+        ChFile v181 = chFileFactory.getChFile("src/test/resources/V181.D/V181.ch");
+
+        Assertions.assertSame(readBuffer, DecodeContext.current().getReadBuffer(1));
+        Assertions.assertNotSame(readBuffer, DecodeContext.current().getReadBuffer(DecodeContext.MAX_RETAINED_CAPACITY + 1));
+        // Samples are decoded out of the buffer, and are not overwritten by the next file.
+        Assertions.assertEquals(71840, v179.getValues().size());
+        Assertions.assertEquals(2.165234, v179.getValues().get(0), 0.001);
+        Assertions.assertEquals(2.1010, v181.getValues().get(0), 0.001);
+    }
 }
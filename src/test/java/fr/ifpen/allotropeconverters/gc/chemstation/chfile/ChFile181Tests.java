@@ -6,8 +6,9 @@ import org.junit.jupiter.api.Test;
 import javax.measure.unit.SI;
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.List;
 
 class ChFile181Tests {
@@ -15,8 +16,7 @@ class ChFile181Tests {
     @Test
     void getVersionReturnsExpected() throws IOException {
         URI uri = new File("src/test/resources/V181.D/V181.ch").toURI();
-        RandomAccessFile file = new RandomAccessFile(uri.getPath(), "r");
-        ChFile chFile = new ChFile181(file);
+        ChFile chFile = new ChFile181(ReadHelpers.readFile(Path.of(uri)));
 
         List<Double> values = chFile.getValues();
 
@@ -25,4 +25,39 @@ class ChFile181Tests {
 
         Assertions.assertEquals(SI.PICO(SI.AMPERE), chFile.getUnit());
     }
+
+    @Test
+    void decodesAbsoluteValuesAndIgnoresIncompleteTail() throws IOException {
+        ByteBuffer fixture = ReadHelpers.readFile(Path.of("src/test/resources/V181.D/V181.ch"));
+        ByteBuffer input = ByteBuffer.allocate(6144 + 23);
+        input.put(fixture.limit(6144));
+        input.putShort((short) 10).putShort((short) 5); // Differences
+        input.putShort(Short.MAX_VALUE).putShort((short) 0).putInt(65536); // Absolute value
+        input.putShort((short) 3);
+        input.putShort(Short.MAX_VALUE).putShort((short) 0).put((byte) 1); // Truncated absolute value
+        input.flip();
+
+        ChFile chFile = new ChFile181(input);
+
+        double yOffset = input.getDouble(4724);
+        double yScaling = input.getDouble(4732);
+        List<Double> values = chFile.getValues();
+        Assertions.assertEquals(4, values.size());
+        Assertions.assertEquals(10 * yScaling + yOffset, values.get(0), 1e-12);
+        Assertions.assertEquals(25 * yScaling + yOffset, values.get(1), 1e-12);
+        Assertions.assertEquals(65536 * yScaling + yOffset, values.get(2), 1e-12);
+        Assertions.assertEquals(65539 * yScaling + yOffset, values.get(3), 1e-12);
+    }
+
+    @Test
+    void estimateBoundsTheDecodedPoints() throws IOException {
+        ChFileEstimate v181 = new ChFileFactory().estimate("src/test/resources/V181.D/V181.ch");
+        ChFileEstimate v179 = new ChFileFactory().estimate("src/test/resources/V179.D/FID1A.ch");
+
+        Assertions.assertEquals("181", v181.getVersion());
+        Assertions.assertTrue(v181.getPoints() >= 5914);
+        Assertions.assertEquals(v181.getFileSize() + 8 * v181.getPoints(), v181.getHeapBytes());
+        Assertions.assertEquals("179", v179.getVersion());
+        Assertions.assertEquals(71840, v179.getPoints()); // Fixed-size samples
+    }
 }
@@ -0,0 +1,68 @@
+package fr.ifpen.allotropeconverters.gc.chemstation.chfile;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+class ChFileCursorTests {
+
+    @TempDir
+    Path temporaryFolder;
+
+    private static void assertWindowsHoldTheSamplesOfTheSignal(String filePath) throws IOException {
+        ChromatogramSignal signal = new ChFileFactory().getChFile(filePath).getSignal();
+        double[] times = new double[997];
+        double[] values = new double[1000]; // Windows are as long as the shorter array
+
+        try (ChFileCursor cursor = new ChFileFactory().openCursor(filePath)) {
+            Assertions.assertEquals(signal.size(), cursor.size());
+
+            int index = 0;
+            int count;
+            while ((count = cursor.read(times, values)) >= 0) {
+                Assertions.assertTrue(count > 0 && count <= times.length);
+                for (int i = 0; i < count; i++) {
+                    Assertions.assertEquals(signal.getTime(index + i), times[i]);
+                    Assertions.assertEquals(signal.getValue(index + i), values[i]);
+                }
+                index += count;
+                Assertions.assertEquals(index, cursor.getIndex());
+            }
+            Assertions.assertEquals(signal.size(), index);
+            Assertions.assertEquals(-1, cursor.read(times, values));
+        }
+    }
+
+    @Test
+    void v179WindowsHoldTheSamplesOfTheSignal() throws IOException {
+        assertWindowsHoldTheSamplesOfTheSignal("src/test/resources/V179.D/FID1A.ch");
+    }
+
+    @Test
+    void v181WindowsHoldTheSamplesOfTheSignal() throws IOException {
+        assertWindowsHoldTheSamplesOfTheSignal("src/test/resources/V181.D/V181.ch");
+    }
+
+    @Test
+    void fileShortenedAfterOpeningEndsTheReadsWithAnError() throws IOException {
+        Path file = Files.copy(Path.of("src/test/resources/V179.D/FID1A.ch"), temporaryFolder.resolve("FID1A.ch"));
+        double[] times = new double[4096];
+        double[] values = new double[4096];
+
+        try (ChFileCursor cursor = new ChFileFactory().openCursor(file.toString())) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(ChFileFactory.HEADER_LENGTH + 1000);
+            }
+
+            Assertions.assertEquals(125, cursor.read(times, values));
+            Assertions.assertThrows(EOFException.class, () -> cursor.read(times, values));
+        }
+    }
+}
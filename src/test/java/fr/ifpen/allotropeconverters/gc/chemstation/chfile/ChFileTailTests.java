@@ -0,0 +1,206 @@
+package fr.ifpen.allotropeconverters.gc.chemstation.chfile;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+class ChFileTailTests {
+
+    @TempDir
+    Path temporaryFolder;
+
+    /**
+     * Writes the file in parts of the given sizes, polling the tail after each, then checks the published samples
+     * against the decoding of the whole file.
+     */
+    private void assertTailDecodesLikeWholeFile(String fixture, int... partSizes) throws Exception {
+        byte[] content = Files.readAllBytes(Path.of(fixture));
+        Path file = temporaryFolder.resolve("FID1A.ch");
+        ChunkCollector collector = new ChunkCollector();
+
+        try (ChFileTail tail = new ChFileTail(file)) {
+            tail.subscribe(collector);
+            Assertions.assertEquals(0, tail.poll()); // Not created yet
+
+            int written = 0;
+            for (int partSize : partSizes) {
+                int length = Math.min(partSize, content.length - written);
+                try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    out.write(content, written, length);
+                }
+                written += length;
+                tail.poll();
+                if (written < ChFileFactory.HEADER_LENGTH) {
+                    Assertions.assertNull(tail.getDetector());
+                }
+            }
+            Assertions.assertEquals(content.length, written);
+        }
+
+        double[] expected = new ChFileFactory().getChFile(fixture).getSignal().getValues().stream()
+                                               .mapToDouble(Double::doubleValue).toArray();
+        Assertions.assertArrayEquals(expected, collector.completion.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void v181TailResumesDeltasAcrossParts() throws Exception {
+        // Odd sizes cut samples, absolute values included, between polls.
+        assertTailDecodesLikeWholeFile("src/test/resources/V181.D/V181.ch", 100, 6100, 1, 3, 7, 1001, 4095, 1 << 20);
+    }
+
+    @Test
+    void v179TailCompletesSplitDoubles() throws Exception {
+        assertTailDecodesLikeWholeFile("src/test/resources/V179.D/FID1A.ch", 6144, 5, 3, 10000, 99999, 1 << 20);
+    }
+
+    @Test
+    void startedTailPollsUntilClosed() throws Exception {
+        Path file = Files.copy(Path.of("src/test/resources/V181.D/V181.ch"), temporaryFolder.resolve("FID1A.ch"));
+        ChunkCollector collector = new ChunkCollector();
+
+        ChFileTail tail = new ChFileTail(file);
+        tail.subscribe(collector);
+        tail.start(Duration.ofMillis(10));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (tail.getSampleCount() < 5914 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        tail.close();
+
+        Assertions.assertEquals(5914, collector.completion.get(10, TimeUnit.SECONDS).length);
+    }
+
+    @Test
+    void fileTruncatedBeforeCloseEndsSubscriptionsExceptionally() throws Exception {
+        Path file = Files.copy(Path.of("src/test/resources/V181.D/V181.ch"), temporaryFolder.resolve("FID1A.ch"));
+        ChunkCollector collector = new ChunkCollector();
+
+        ChFileTail tail = new ChFileTail(file);
+        tail.subscribe(collector);
+        tail.poll();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(ChFileFactory.HEADER_LENGTH + 100);
+        }
+
+        Assertions.assertThrows(IOException.class, tail::close);
+        ExecutionException exception = Assertions.assertThrows(ExecutionException.class,
+                                                               () -> collector.completion.get(10, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(IOException.class, exception.getCause());
+    }
+
+    @Test
+    void subscriberCanReadTheTailWhilePollsWaitForIt() throws Exception {
+        byte[] content = Files.readAllBytes(Path.of("src/test/resources/V179.D/FID1A.ch"));
+        Path file = Files.write(temporaryFolder.resolve("FID1A.ch"),
+                                Arrays.copyOf(content, ChFileFactory.HEADER_LENGTH));
+        int chunks = 2 * Flow.defaultBufferSize(); // Enough to fill the buffer of the subscriber
+        ChFileTail tail = new ChFileTail(file);
+        CountDownLatch bufferFull = new CountDownLatch(1);
+        tail.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(SampleChunk chunk) {
+                try {
+                    bufferFull.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                // Reads the state of the tail while a poll waits for the buffer to drain.
+                tail.getDetector();
+                tail.getSampleCount();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; i < chunks; i++) {
+                    try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.APPEND)) {
+                        out.write(content, ChFileFactory.HEADER_LENGTH + 8 * i, 8);
+                    }
+                    tail.poll();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.start();
+        Thread.sleep(500); // The writer waits for the subscriber to take more chunks.
+        bufferFull.countDown();
+        writer.join(10000);
+
+        Assertions.assertFalse(writer.isAlive(), "Polls blocked");
+        tail.close();
+        Assertions.assertEquals(chunks, tail.getSampleCount());
+    }
+
+    /**
+     * Requests every chunk, checking that they follow each other, and concatenates their samples on completion.
+     */
+    private static final class ChunkCollector implements Flow.Subscriber<SampleChunk> {
+
+        private final List<SampleChunk> chunks = new ArrayList<>();
+        private final CompletableFuture<double[]> completion = new CompletableFuture<>();
+        private long nextIndex;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(SampleChunk chunk) {
+            if (chunk.getFirstIndex() != nextIndex) {
+                completion.completeExceptionally(new AssertionError("Gap before sample " + chunk.getFirstIndex()));
+            }
+            nextIndex += chunk.size();
+            chunks.add(chunk);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completion.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            double[] samples = new double[0];
+            for (SampleChunk chunk : chunks) {
+                int start = samples.length;
+                samples = Arrays.copyOf(samples, start + chunk.size());
+                for (int i = 0; i < chunk.size(); i++) {
+                    samples[start + i] = chunk.getValue(i);
+                }
+            }
+            completion.complete(samples);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package fr.ifpen.allotropeconverters.gc.chemstation.chfile;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class ChromatogramSignalTests {
+
+    @Test
+    void timeAxisSpansStartToEnd() {
+        ChromatogramSignal signal = new ChromatogramSignal(new double[] {1.0, 2.0, 3.0, 4.0}, 1.0, 3.0);
+
+        List<Double> times = signal.getTimes();
+
+        Assertions.assertEquals(5, times.size());
+        Assertions.assertEquals(1.0, times.get(0));
+        Assertions.assertEquals(2.0, times.get(2));
+        Assertions.assertEquals(3.0, times.get(4));
+        Assertions.assertEquals(0.5, signal.getStep());
+    }
+
+    @Test
+    void valuesViewReadsPrimitives() {
+        ChromatogramSignal signal = new ChromatogramSignal(new double[] {1.5, -2.5}, 0, 1);
+
+        List<Double> values = signal.getValues();
+
+        Assertions.assertEquals(List.of(1.5, -2.5), values);
+        Assertions.assertThrows(IndexOutOfBoundsException.class, () -> values.get(2));
+    }
+}
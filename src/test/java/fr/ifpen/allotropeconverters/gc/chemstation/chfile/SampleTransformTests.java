@@ -0,0 +1,53 @@
+package fr.ifpen.allotropeconverters.gc.chemstation.chfile;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.measure.converter.AddConverter;
+import javax.measure.converter.UnitConverter;
+import javax.measure.unit.SI;
+
+class SampleTransformTests {
+
+    private static final double Y_SCALING = 0.000130208;
+    private static final double Y_OFFSET = 1.5;
+
+    @Test
+    void picoampereKeepsFileScaling() {
+        SampleTransform transform = SampleTransform.of(Y_SCALING, Y_OFFSET, UnitConverter.IDENTITY);
+        double[] samples = {0, 15360, -7};
+
+        transform.applyInPlace(samples);
+
+        Assertions.assertTrue(transform.isFused());
+        Assertions.assertArrayEquals(new double[]{Y_OFFSET, 15360 * Y_SCALING + Y_OFFSET, -7 * Y_SCALING + Y_OFFSET}, samples);
+    }
+
+    @Test
+    void linearUnitIsFusedWithFileScaling() {
+        UnitConverter nanoToPico = SI.NANO(SI.AMPERE).getConverterTo(SI.PICO(SI.AMPERE));
+        SampleTransform transform = SampleTransform.of(Y_SCALING, Y_OFFSET, nanoToPico);
+        double[] samples = {0, 15360, -7};
+
+        transform.applyInPlace(samples);
+
+        Assertions.assertTrue(transform.isFused());
+        for (int i = 0; i < samples.length; i++) {
+            double raw = new double[]{0, 15360, -7}[i];
+            Assertions.assertEquals(nanoToPico.convert(raw * Y_SCALING + Y_OFFSET), samples[i], 1e-9);
+        }
+    }
+
+    @Test
+    void nonLinearConverterIsAppliedPerSample() {
+        UnitConverter shift = new AddConverter(10);
+        SampleTransform transform = SampleTransform.of(Y_SCALING, Y_OFFSET, shift);
+        double[] samples = {0, 15360};
+
+        transform.applyInPlace(samples);
+
+        Assertions.assertFalse(transform.isFused());
+        Assertions.assertArrayEquals(new double[]{Y_OFFSET + 10, 15360 * Y_SCALING + Y_OFFSET + 10}, samples);
+        Assertions.assertEquals(Y_OFFSET + 10, transform.apply(0));
+    }
+}